@@ -1,51 +1,194 @@
 package com.clinic.ui;
 
 import com.clinic.ui.controller.AppointmentListViewController;
+import com.clinic.ui.controller.AppointmentViewPool;
+import com.clinic.ui.controller.DashboardViewController;
+import com.clinic.ui.service.ApiService;
+import com.clinic.ui.service.AppointmentPrefetcher;
+import com.clinic.ui.service.DoctorRegistry;
+import com.clinic.ui.service.JsonCodec;
+import com.clinic.ui.service.Outbox;
+import com.clinic.ui.service.PatientCache;
+import com.clinic.ui.service.PatientLookup;
+import com.clinic.ui.service.PatientSearchIndex;
+import com.clinic.ui.service.SnapshotStore;
 import javafx.application.Application;
+import javafx.application.Platform;
 import javafx.fxml.FXMLLoader;
+import javafx.geometry.Pos;
 import javafx.scene.Parent;
 import javafx.scene.Scene;
+import javafx.scene.control.Label;
+import javafx.scene.control.ProgressIndicator;
 import javafx.scene.control.Tab;
 import javafx.scene.control.TabPane;
+import javafx.scene.layout.VBox;
 import javafx.stage.Stage;
 
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+
 public class Main extends Application {
+    private static final long LAUNCHED_AT = System.nanoTime();
+
+    private AppointmentListViewController todayListController;
+    private AppointmentListViewController listAllController;
+    private DashboardViewController dashboardController;
+    private final Map<Tab, Callable<Parent>> pendingContent = new HashMap<>();
+
     @Override
     public void start(Stage primaryStage) throws Exception {
+        // Last-known data from the previous run is shown first and revalidated
+        // by the normal loads below.
+        SnapshotStore.Snapshot snapshot = SnapshotStore.getInstance().load();
+        if (snapshot != null) {
+            DoctorRegistry.getInstance().seed(snapshot.getDoctors());
+            CompletableFuture.runAsync(() -> PatientSearchIndex.getInstance().seed(snapshot.getPatients()));
+        }
+
+        // Network and parser warm-up run in the background while the window opens.
+        ApiService.warmUp();
+        CompletableFuture.runAsync(JsonCodec::warmUp);
+        DoctorRegistry.getInstance().getDoctors();
+
+        // Writes left unsent by the previous run are resent; the services that
+        // reconcile provisional ids must be listening before the first flush.
+        PatientLookup.getInstance();
+        AppointmentPrefetcher.getInstance();
+        Outbox.getInstance().start();
+
         TabPane tabPane = new TabPane();
         tabPane.setTabClosingPolicy(TabPane.TabClosingPolicy.SELECTED_TAB);
 
         Tab tabList = new Tab("Lịch Hẹn Hôm Nay");
-        FXMLLoader todayListLoader = new FXMLLoader(getClass().getResource("/views/appointment_list_view.fxml"));
-        tabList.setContent(todayListLoader.load());
         tabList.setClosable(false);
-        AppointmentListViewController todayListController = todayListLoader.getController();
-        todayListController.setFilter(AppointmentListViewController.AppointmentFilter.TODAY);
-        todayListController.configure();
-        todayListController.setTabPane(tabPane);
+        setLazyContent(tabList, () -> {
+            FXMLLoader todayListLoader = new FXMLLoader(getClass().getResource("/views/appointment_list_view.fxml"));
+            Parent content = todayListLoader.load();
+            todayListController = todayListLoader.getController();
+            todayListController.setFilter(AppointmentListViewController.AppointmentFilter.TODAY);
+            if (snapshot != null) {
+                todayListController.showSnapshot(snapshot.getTodayAppointments(), snapshot.getSavedAt());
+            }
+            todayListController.configure().whenComplete((loaded, error) ->
+                    System.out.println("DEBUG: Today's appointments shown " + sinceLaunch() + " ms after launch"));
+            todayListController.setTabPane(tabPane);
+            todayListController.enableLiveUpdates();
+            todayListController.enableAutoRefresh(tabList);
+            return content;
+        });
 
+        // The full patient list is only streamed into the search index when this
+        // tab is first built (PatientViewController.initialize); until then the
+        // index holds what the snapshot seeded.
         Tab tabPatientList = new Tab("Danh Sách Bệnh Nhân");
-        FXMLLoader patientListLoader = new FXMLLoader(getClass().getResource("/views/patient_view.fxml"));
-        tabPatientList.setContent(patientListLoader.load());
+        setLazyContent(tabPatientList, () -> {
+            FXMLLoader patientListLoader = new FXMLLoader(getClass().getResource("/views/patient_view.fxml"));
+            return patientListLoader.load();
+        });
 
         Tab tabListAll = new Tab("Danh sach Lịch Hẹn");
-        FXMLLoader listLoader = new FXMLLoader(getClass().getResource("/views/appointment_list_view.fxml"));
-        tabListAll.setContent(listLoader.load());
         tabListAll.setClosable(false);
-        AppointmentListViewController listAllController = listLoader.getController();
-        listAllController.setTabPane(tabPane);
-        listAllController.setFilter(AppointmentListViewController.AppointmentFilter.ALL);
-        listAllController.configure();
+        setLazyContent(tabListAll, () -> {
+            FXMLLoader listLoader = new FXMLLoader(getClass().getResource("/views/appointment_list_view.fxml"));
+            Parent content = listLoader.load();
+            listAllController = listLoader.getController();
+            listAllController.setTabPane(tabPane);
+            listAllController.setFilter(AppointmentListViewController.AppointmentFilter.ALL);
+            listAllController.configure();
+            listAllController.enableAutoRefresh(tabListAll);
+            return content;
+        });
+
+        Tab tabDashboard = new Tab("Tổng Quan");
+        tabDashboard.setClosable(false);
+        setLazyContent(tabDashboard, () -> {
+            // The live view follows the today list, so that tab is built first.
+            buildContent(tabList);
+            FXMLLoader dashboardLoader = new FXMLLoader(getClass().getResource("/views/dashboard_view.fxml"));
+            Parent content = dashboardLoader.load();
+            dashboardController = dashboardLoader.getController();
+            if (todayListController != null) {
+                dashboardController.setLiveSource(todayListController.appointmentsProperty());
+            }
+            return content;
+        });
 
         tabPane.getTabs().add(tabList);
         tabPane.getTabs().add(tabListAll);
         tabPane.getTabs().add(tabPatientList);
+        tabPane.getTabs().add(tabDashboard);
+        tabPane.getSelectionModel().selectedItemProperty().addListener((obs, oldTab, newTab) -> buildContent(newTab));
 
         Scene scene = new Scene(tabPane, 1200, 800);
+        Runnable firstPulse = new Runnable() {
+            @Override
+            public void run() {
+                scene.removePostLayoutPulseListener(this);
+                System.out.println("DEBUG: First paint " + sinceLaunch() + " ms after launch");
+            }
+        };
+        scene.addPostLayoutPulseListener(firstPulse);
 
         primaryStage.setTitle("Hệ Thống Quản Lý Phòng Khám");
         primaryStage.setScene(scene);
         primaryStage.show();
+
+        // Build the visible tab on the next pulse so the skeleton is painted first.
+        Platform.runLater(() -> {
+            buildContent(tabPane.getSelectionModel().getSelectedItem());
+            AppointmentViewPool.getInstance().warmUp();
+            SnapshotStore.getInstance().startPeriodicSave();
+        });
+    }
+
+    @Override
+    public void stop() {
+        if (dashboardController != null) {
+            dashboardController.dispose();
+        }
+        if (todayListController != null) {
+            todayListController.dispose();
+        }
+        if (listAllController != null) {
+            listAllController.dispose();
+        }
+        SnapshotStore.getInstance().stopPeriodicSave();
+        SnapshotStore.getInstance().save();
+        System.out.println("DEBUG: " + PatientCache.getInstance());
+        System.out.println("DEBUG: Outbox has " + Outbox.getInstance().getPendingCount() + " unsent writes at exit");
+    }
+
+    private void setLazyContent(Tab tab, Callable<Parent> builder) {
+        ProgressIndicator progress = new ProgressIndicator();
+        progress.setMaxSize(48, 48);
+        VBox skeleton = new VBox(10, progress, new Label("Đang tải..."));
+        skeleton.setAlignment(Pos.CENTER);
+        tab.setContent(skeleton);
+        pendingContent.put(tab, builder);
+    }
+
+    private void buildContent(Tab tab) {
+        Callable<Parent> builder = tab == null ? null : pendingContent.remove(tab);
+        if (builder == null) {
+            return;
+        }
+        long started = System.nanoTime();
+        try {
+            tab.setContent(builder.call());
+            System.out.println("DEBUG: Built tab '" + tab.getText() + "' in "
+                    + (System.nanoTime() - started) / 1_000_000 + " ms");
+        } catch (Exception e) {
+            System.err.println("ERROR building tab '" + tab.getText() + "': " + e.getMessage());
+            e.printStackTrace();
+            tab.setContent(new Label("Không thể tải nội dung: " + e.getMessage()));
+        }
+    }
+
+    private static long sinceLaunch() {
+        return (System.nanoTime() - LAUNCHED_AT) / 1_000_000;
     }
 
     public static void main(String[] args) {
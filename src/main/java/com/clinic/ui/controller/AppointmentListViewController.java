@@ -1,24 +1,38 @@
 package com.clinic.ui.controller;
 
 import com.clinic.ui.model.AppointmentDTO;
+import com.clinic.ui.service.ApiConfig;
 import com.clinic.ui.service.ApiService;
-import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.SerializationFeature;
-import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.clinic.ui.service.AppointmentEventStream;
+import com.clinic.ui.service.AppointmentPrefetcher;
+import com.clinic.ui.service.CsvExporter;
+import com.clinic.ui.service.JsonCodec;
+import com.clinic.ui.service.Outbox;
+import com.clinic.ui.service.PagedObservableList;
+import com.clinic.ui.service.RefreshScheduler;
+import com.clinic.ui.service.SnapshotStore;
+import javafx.animation.PauseTransition;
 import javafx.application.Platform;
+import javafx.beans.property.ReadOnlyObjectProperty;
 import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
 import javafx.fxml.FXML;
-import javafx.fxml.FXMLLoader;
 import javafx.scene.control.*;
+import javafx.util.Duration;
 
 import java.io.IOException;
 import java.time.LocalDate;
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Consumer;
 
 public class AppointmentListViewController {
@@ -38,21 +52,37 @@ public class AppointmentListViewController {
     @FXML private TableColumn<AppointmentDTO, String> colStatus;
     @FXML private Button btnRefresh;
     @FXML private Button btnNewAppointment;
+    @FXML private Button btnExport;
     @FXML private Label lblDate;
     @FXML private Label lblStatus;
     @FXML private Label lblCount;
 
-    private final ObjectMapper mapper;
     private TabPane tabPane;
     private Consumer<String> statusReporter = message -> {};
     private Map<Integer, Tab> appointmentTabs = new HashMap<>();
     private AppointmentFilter currentFilter = AppointmentFilter.TODAY;
-
-    public AppointmentListViewController() {
-        this.mapper = new ObjectMapper();
-        this.mapper.registerModule(new JavaTimeModule());
-        this.mapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
-    }
+    private CompletableFuture<Integer> pendingLoad;
+    private CompletableFuture<Boolean> loading;
+    private PagedObservableList<AppointmentDTO> pagedAppointments;
+    private boolean pagingSupported = true;
+    private KeyedListMerger<AppointmentDTO, Integer> appointmentIndex;
+    private LocalDateTime syncWatermark;
+    private CompletableFuture<Boolean> pendingSync;
+    private boolean deltaSupported = true;
+    private AppointmentEventStream eventStream;
+    private boolean liveUpdatesConnected;
+    private RefreshScheduler.Job refreshJob;
+    private Outbox.Listener outboxListener;
+    private CsvExportButton exportButton;
+    private final PauseTransition hoverDwell = new PauseTransition(Duration.millis(HOVER_PREFETCH_DELAY_MS));
+    private AppointmentDTO hoveredAppointment;
+    private AppointmentPrefetcher.Handle hoverPrefetch;
+    private AppointmentPrefetcher.Handle selectionPrefetch;
+    private final List<AppointmentDTO> bufferedEvents = new ArrayList<>();
+
+    private static final int PAGE_SIZE = 100;
+    private static final int MAX_CACHED_PAGES = 10;
+    private static final int HOVER_PREFETCH_DELAY_MS = 250;
 
     @FXML
     public void initialize() {
@@ -107,21 +137,56 @@ public class AppointmentListViewController {
             }
         });
 
+        // A paged list cannot be sorted on the client: sorting reads every row
+        // and so would request every page.
+        tableAppointments.setSortPolicy(t -> !(t.getItems() instanceof PagedObservableList)
+                && TableView.DEFAULT_SORT_POLICY.call(t));
+
         DateTimeFormatter dateFormatter = DateTimeFormatter.ofPattern("EEEE, dd/MM/yyyy");
         lblDate.setText("Ngày: " + LocalDate.now().format(dateFormatter));
 
         tableAppointments.setRowFactory(tv -> {
             TableRow<AppointmentDTO> row = new TableRow<>();
             row.setOnMouseClicked(event -> {
-                if (event.getClickCount() == 2 && !row.isEmpty()) {
+                if (event.getClickCount() == 2 && !row.isEmpty() && row.getItem().getId() != null) {
                     openAppointmentTab(row.getItem());
                 }
             });
+            row.setOnMouseEntered(event -> {
+                if (!row.isEmpty()) {
+                    hoveredAppointment = row.getItem();
+                    hoverDwell.playFromStart();
+                }
+            });
+            row.setOnMouseExited(event -> {
+                hoverDwell.stop();
+                hoveredAppointment = null;
+            });
             return row;
         });
 
-        btnRefresh.setOnAction(e -> loadAppointments());
+        // Load what the appointment tab needs while the user is still pointing
+        // at a row, so a double-click can show it without waiting.
+        // Only this list's own prefetches are cancelled, never another tab's.
+        hoverDwell.setOnFinished(e -> hoverPrefetch = AppointmentPrefetcher.getInstance().prefetch(hoveredAppointment));
+        tableAppointments.getSelectionModel().selectedItemProperty().addListener((obs, oldSelection, newSelection) -> {
+            if (selectionPrefetch != null) {
+                selectionPrefetch.cancel();
+            }
+            selectionPrefetch = AppointmentPrefetcher.getInstance().prefetch(newSelection);
+        });
+
+        btnRefresh.setOnAction(e -> refresh(true));
         btnNewAppointment.setOnAction(e -> createNewAppointmentTab());
+        exportButton = new CsvExportButton(btnExport, "lich-hen",
+                target -> CsvExporter.appointments(currentFilter == AppointmentFilter.TODAY, target), this::updateStatus);
+    }
+
+    /**
+     * The rows currently shown; the list is replaced on every full reload.
+     */
+    public ReadOnlyObjectProperty<ObservableList<AppointmentDTO>> appointmentsProperty() {
+        return tableAppointments.itemsProperty();
     }
 
     public void setTabPane(TabPane tabPane) {
@@ -139,10 +204,43 @@ public class AppointmentListViewController {
         updateFilterDisplay();
     }
 
-    public void configure() {
+    /**
+     * Shows rows restored from the local snapshot until the first live rows
+     * arrive. Call before {@link #configure()}.
+     */
+    public void showSnapshot(List<AppointmentDTO> appointments, Instant savedAt) {
+        if (appointments.isEmpty()) {
+            return;
+        }
+        tableAppointments.setItems(FXCollections.observableArrayList(appointments));
+        lblCount.setText("Tổng: " + appointments.size() + " lịch hẹn (đã lưu)");
+        updateStatus("Hiển thị dữ liệu đã lưu lúc "
+                + DateTimeFormatter.ofPattern("HH:mm:ss").format(savedAt.atZone(ZoneId.systemDefault()))
+                + ", đang cập nhật...");
+    }
+
+    private void rememberForSnapshot() {
+        if (currentFilter == AppointmentFilter.TODAY && appointmentIndex != null) {
+            SnapshotStore.getInstance().setTodayAppointments(appointmentIndex.getItems());
+        }
+    }
+
+    /**
+     * Starts the initial load; the future completes once the first rows are
+     * shown or the load failed.
+     */
+    public CompletableFuture<Boolean> configure() {
+        if (outboxListener == null) {
+            outboxListener = (entry, response) -> {
+                if (entry.getKind() != Outbox.Kind.PATIENT) {
+                    Platform.runLater(this::refreshList);
+                }
+            };
+            Outbox.getInstance().addListener(outboxListener);
+        }
         updateFilterDisplay();
         updateStatus("Sẵn sàng");
-        loadAppointments();
+        return loadAppointments(true);
     }
 
     private void updateFilterDisplay() {
@@ -164,39 +262,150 @@ public class AppointmentListViewController {
         }
     }
 
-    private void loadAppointments() {
-        try {
-            System.out.println("DEBUG: Loading appointments with filter: " + currentFilter);
-            updateStatus("Đang tải danh sách lịch hẹn...");
-
-            String json;
-            switch (currentFilter) {
-                case ALL:
-                    json = ApiService.getAppointments();
-                    break;
-                case TODAY:
-                default:
-                    json = ApiService.getTodayAppointments();
-                    break;
+    /**
+     * Starts a full load. Failures are reported in a dialog when
+     * {@code interactive}, otherwise only in the status bar.
+     */
+    private CompletableFuture<Boolean> loadAppointments(boolean interactive) {
+        CompletableFuture<Boolean> done = new CompletableFuture<>();
+        loading = done;
+        done.whenComplete((changed, error) -> {
+            if (loading == done) {
+                loading = null;
             }
+        });
+        if (pendingLoad != null) {
+            pendingLoad.cancel(true);
+        }
 
-            System.out.println("DEBUG: Received JSON length: " + json.length());
+        if (pagedAppointments != null) {
+            pagedAppointments.cancel();
+        }
+        appointmentIndex = null;
+
+        System.out.println("DEBUG: Loading appointments with filter: " + currentFilter);
+        updateStatus("Đang tải danh sách lịch hẹn...");
+
+        if (currentFilter == AppointmentFilter.ALL && pagingSupported) {
+            loadAppointmentsPaged(done, interactive);
+            return done;
+        }
 
-            List<AppointmentDTO> appointments = mapper.readValue(json, new TypeReference<List<AppointmentDTO>>(){});
-            System.out.println("DEBUG: Parsed " + appointments.size() + " appointments");
+        ObservableList<AppointmentDTO> rows = FXCollections.observableArrayList();
+        AtomicReference<CompletableFuture<?>> holder = new AtomicReference<>();
+        Consumer<List<AppointmentDTO>> onChunk = chunk -> Platform.runLater(() -> {
+            if (pendingLoad != holder.get()) {
+                return;
+            }
+            if (tableAppointments.getItems() != rows) {
+                tableAppointments.setItems(rows);
+            }
+            rows.addAll(chunk);
+            lblCount.setText("Đang tải: " + rows.size() + " lịch hẹn");
+        });
+
+        CompletableFuture<Integer> request;
+        switch (currentFilter) {
+            case ALL:
+                request = ApiService.streamAppointments(onChunk);
+                break;
+            case TODAY:
+            default:
+                request = ApiService.streamTodayAppointments(onChunk);
+                break;
+        }
+        holder.set(request);
+        pendingLoad = request;
+
+        request.whenCompleteAsync((count, error) -> {
+            if (pendingLoad != request) {
+                done.complete(false);
+                return;
+            }
+            pendingLoad = null;
+            if (ApiService.isCancellation(error)) {
+                done.complete(false);
+                return;
+            }
+            if (error != null) {
+                Throwable cause = ApiService.unwrap(error);
+                System.err.println("ERROR loading appointments: " + cause.getMessage());
+                cause.printStackTrace();
+                updateStatus("Lỗi khi tải danh sách lịch hẹn: " + cause.getMessage());
+                if (interactive) {
+                    showError("Lỗi", "Không thể tải danh sách lịch hẹn", cause.getMessage());
+                }
+                done.completeExceptionally(cause);
+                return;
+            }
 
-            tableAppointments.setItems(FXCollections.observableArrayList(appointments));
+            System.out.println("DEBUG: Parsed " + count + " appointments; " + ApiService.getResponseCache()
+                    + ", " + ApiService.getSingleFlight());
+            if (tableAppointments.getItems() != rows) {
+                tableAppointments.setItems(rows);
+            }
+            appointmentIndex = new KeyedListMerger<>(rows, AppointmentDTO::getId,
+                    AppointmentListViewController::sameAppointment);
+            if (!bufferedEvents.isEmpty()) {
+                appointmentIndex.applyChanges(bufferedEvents, this::belongsToCurrentFilter);
+                bufferedEvents.clear();
+            }
+            // Only server timestamps are used: with nothing loaded yet the next
+            // sync fetches the (small) full list rather than trusting our clock.
+            syncWatermark = latestChange(rows, null);
+            rememberForSnapshot();
 
             String filterText = currentFilter == AppointmentFilter.ALL ? "tất cả" : "hôm nay";
-            lblCount.setText("Tổng: " + appointments.size() + " lịch hẹn " + filterText);
-            updateStatus("Đã tải " + appointments.size() + " lịch hẹn " + filterText);
+            lblCount.setText("Tổng: " + rows.size() + " lịch hẹn " + filterText);
+            updateStatus("Đã tải " + rows.size() + " lịch hẹn " + filterText);
+            done.complete(true);
+        }, Platform::runLater);
+        return done;
+    }
 
-        } catch (Exception e) {
-            System.err.println("ERROR loading appointments: " + e.getMessage());
-            e.printStackTrace();
-            updateStatus("Lỗi khi tải danh sách lịch hẹn: " + e.getMessage());
-            showError("Lỗi", "Không thể tải danh sách lịch hẹn", e.getMessage());
+    private void loadAppointmentsPaged(CompletableFuture<Boolean> done, boolean interactive) {
+        if (pagedAppointments == null) {
+            pagedAppointments = new PagedObservableList<>(
+                    ApiService::getAppointmentsPage, PAGE_SIZE, MAX_CACHED_PAGES, new AppointmentDTO());
+            pagedAppointments.setErrorHandler(e ->
+                    updateStatus("Lỗi khi tải trang lịch hẹn: " + e.getMessage()));
         }
+
+        PagedObservableList<AppointmentDTO> list = pagedAppointments;
+        list.reload().whenComplete((total, error) -> {
+            if (ApiService.isCancellation(error) || list != pagedAppointments) {
+                done.complete(false);
+                return;
+            }
+            if (error != null) {
+                if (ApiService.isNotFound(error)) {
+                    System.out.println("DEBUG: Paged endpoint unavailable, falling back to full download");
+                    pagingSupported = false;
+                    pagedAppointments = null;
+                    loadAppointments(interactive).whenComplete((changed, fallbackError) -> {
+                        if (fallbackError != null) {
+                            done.completeExceptionally(fallbackError);
+                        } else {
+                            done.complete(changed);
+                        }
+                    });
+                    return;
+                }
+                System.err.println("ERROR loading appointments: " + error.getMessage());
+                updateStatus("Lỗi khi tải danh sách lịch hẹn: " + error.getMessage());
+                if (interactive) {
+                    showError("Lỗi", "Không thể tải danh sách lịch hẹn", error.getMessage());
+                }
+                done.completeExceptionally(error);
+                return;
+            }
+
+            tableAppointments.getSortOrder().clear();
+            tableAppointments.setItems(list);
+            lblCount.setText("Tổng: " + total + " lịch hẹn tất cả");
+            updateStatus("Đã tải " + total + " lịch hẹn tất cả");
+            done.complete(true);
+        });
     }
 
     private void openAppointmentTab(AppointmentDTO appointment) {
@@ -212,10 +421,10 @@ public class AppointmentListViewController {
         }
 
         try {
-            FXMLLoader loader = new FXMLLoader(getClass().getResource("/views/appointment_view.fxml"));
-            javafx.scene.Parent content = loader.load();
+            AppointmentViewPool.View view = AppointmentViewPool.getInstance().acquire();
+            javafx.scene.Parent content = view.getRoot();
 
-            AppointmentTabController controller = loader.getController();
+            AppointmentTabController controller = view.getController();
 
             String tabName = "LH #" + appointment.getId();
             Tab newTab = new Tab(tabName, content);
@@ -242,7 +451,11 @@ public class AppointmentListViewController {
             tabPane.getTabs().add(newTab);
             appointmentTabs.put(appointment.getId(), newTab);
 
-            newTab.setOnClosed(e -> appointmentTabs.remove(appointment.getId()));
+            newTab.setOnClosed(e -> {
+                appointmentTabs.remove(appointment.getId());
+                newTab.setContent(null);
+                AppointmentViewPool.getInstance().release(view);
+            });
 
             tabPane.getSelectionModel().select(newTab);
 
@@ -262,10 +475,10 @@ public class AppointmentListViewController {
         }
 
         try {
-            FXMLLoader loader = new FXMLLoader(getClass().getResource("/views/appointment_view.fxml"));
-            javafx.scene.Parent content = loader.load();
+            AppointmentViewPool.View view = AppointmentViewPool.getInstance().acquire();
+            javafx.scene.Parent content = view.getRoot();
 
-            AppointmentTabController controller = loader.getController();
+            AppointmentTabController controller = view.getController();
 
             String tabName = "Lịch hẹn mới";
             Tab newTab = new Tab(tabName, content);
@@ -287,6 +500,11 @@ public class AppointmentListViewController {
                     }
             );
 
+            newTab.setOnClosed(e -> {
+                newTab.setContent(null);
+                AppointmentViewPool.getInstance().release(view);
+            });
+
             tabPane.getTabs().add(newTab);
 
             tabPane.getSelectionModel().select(newTab);
@@ -300,11 +518,277 @@ public class AppointmentListViewController {
         }
     }
 
-    public void refreshList() {
-        Platform.runLater(this::loadAppointments);
+    /**
+     * Background refresh entry point, callable from any thread. The future
+     * completes with {@code true} when the list changed. The paged all-appointments
+     * view is only refreshed on demand, since reloading it resets the viewport.
+     */
+    public CompletableFuture<Boolean> refreshList() {
+        CompletableFuture<Boolean> result = new CompletableFuture<>();
+        Platform.runLater(() -> {
+            if (tableAppointments.getItems() == pagedAppointments && pagedAppointments != null) {
+                result.complete(false);
+                return;
+            }
+            refresh(false).whenComplete((changed, error) -> {
+                if (error != null) {
+                    result.completeExceptionally(error);
+                } else {
+                    result.complete(changed);
+                }
+            });
+        });
+        return result;
+    }
+
+    /**
+     * Polls this list in the background while {@code tab} is selected. Polling
+     * is suspended while the live event stream is connected.
+     */
+    public void enableAutoRefresh(Tab tab) {
+        ApiConfig config = ApiService.getConfig();
+        if (refreshJob != null || config.getRefreshInterval().isZero()) {
+            return;
+        }
+        refreshJob = RefreshScheduler.getInstance().register(
+                "appointments-" + currentFilter.name().toLowerCase(),
+                config.getRefreshInterval(),
+                config.getMaxRefreshInterval(),
+                this::refreshList);
+        refreshJob.setVisible(tab.isSelected());
+        refreshJob.setSuspended(liveUpdatesConnected);
+        tab.selectedProperty().addListener((obs, wasSelected, isSelected) -> refreshJob.setVisible(isSelected));
+    }
+
+    public RefreshScheduler.Job getRefreshJob() {
+        return refreshJob;
+    }
+
+    /**
+     * Subscribes this list to the server's appointment event stream so created,
+     * completed and cancelled appointments show up without pressing Refresh.
+     */
+    public void enableLiveUpdates() {
+        if (eventStream != null) {
+            return;
+        }
+        eventStream = ApiService.openAppointmentEvents(new AppointmentEventStream.Listener() {
+            @Override
+            public void onEvent(AppointmentEventStream.Event event) {
+                Platform.runLater(() -> applyEvent(event));
+            }
+
+            @Override
+            public void onConnected(boolean reconnected) {
+                setLiveUpdatesConnected(true);
+                updateStatus("Đã kết nối cập nhật trực tiếp");
+                if (reconnected) {
+                    refreshList();
+                }
+            }
+
+            @Override
+            public void onDisconnected(Throwable error) {
+                setLiveUpdatesConnected(false);
+                updateStatus("Mất kết nối cập nhật trực tiếp, đang thử lại...");
+            }
+
+            @Override
+            public void onUnavailable() {
+                setLiveUpdatesConnected(false);
+                updateStatus("Máy chủ không hỗ trợ cập nhật trực tiếp, danh sách được làm mới định kỳ");
+            }
+        });
+    }
+
+    private void setLiveUpdatesConnected(boolean connected) {
+        liveUpdatesConnected = connected;
+        if (refreshJob != null) {
+            refreshJob.setSuspended(connected);
+        }
+    }
+
+    public void dispose() {
+        if (hoverPrefetch != null) {
+            hoverPrefetch.cancel();
+        }
+        if (selectionPrefetch != null) {
+            selectionPrefetch.cancel();
+        }
+        if (exportButton != null) {
+            exportButton.cancel();
+        }
+        if (outboxListener != null) {
+            Outbox.getInstance().removeListener(outboxListener);
+            outboxListener = null;
+        }
+        if (refreshJob != null) {
+            refreshJob.cancel();
+            refreshJob = null;
+        }
+        if (eventStream != null) {
+            eventStream.close();
+            eventStream = null;
+        }
+        if (pendingLoad != null) {
+            pendingLoad.cancel(true);
+        }
+    }
+
+    private void applyEvent(AppointmentEventStream.Event event) {
+        AppointmentDTO appointment = event.getAppointment();
+        System.out.println("DEBUG: Appointment event " + event.getType() + " #" + appointment.getId());
+        if (appointmentIndex == null) {
+            if (pendingLoad != null) {
+                bufferedEvents.add(appointment);
+            }
+            return;
+        }
+
+        Integer selectedId = selectedAppointmentId();
+        KeyedListMerger.Result result = appointmentIndex.applyChanges(List.of(appointment), this::belongsToCurrentFilter);
+        restoreSelection(selectedId, appointmentIndex);
+        syncWatermark = latestChange(List.of(appointment), syncWatermark);
+
+        if (!result.isEmpty()) {
+            rememberForSnapshot();
+            String filterText = currentFilter == AppointmentFilter.ALL ? "tất cả" : "hôm nay";
+            lblCount.setText("Tổng: " + appointmentIndex.getItems().size() + " lịch hẹn " + filterText);
+        }
+    }
+
+    private CompletableFuture<Boolean> refresh(boolean interactive) {
+        // Restarting a load that is still running could keep it from ever
+        // finishing on a slow link, so callers share it instead.
+        if (loading != null) {
+            return loading;
+        }
+        if (appointmentIndex == null) {
+            return loadAppointments(interactive);
+        }
+        return syncAppointments();
+    }
+
+    private CompletableFuture<Boolean> syncAppointments() {
+        if (pendingSync != null) {
+            return pendingSync;
+        }
+
+        KeyedListMerger<AppointmentDTO, Integer> index = appointmentIndex;
+        boolean todayOnly = currentFilter != AppointmentFilter.ALL;
+        boolean delta = deltaSupported && syncWatermark != null;
+        updateStatus("Đang đồng bộ lịch hẹn...");
+
+        CompletableFuture<List<AppointmentDTO>> request;
+        if (delta) {
+            request = ApiService.getAppointmentChangesAsync(todayOnly, syncWatermark);
+        } else {
+            request = (todayOnly ? ApiService.getTodayAppointmentsAsync() : ApiService.getAppointmentsAsync())
+                    .thenApply(json -> JsonCodec.readList(json, AppointmentDTO.class));
+        }
+        CompletableFuture<Boolean> done = new CompletableFuture<>();
+        pendingSync = done;
+
+        request.whenCompleteAsync((changes, error) -> {
+            pendingSync = null;
+            if (index != appointmentIndex || ApiService.isCancellation(error)) {
+                done.complete(false);
+                return;
+            }
+            if (error != null) {
+                Throwable cause = ApiService.unwrap(error);
+                if (delta && ApiService.isNotFound(cause)) {
+                    System.out.println("DEBUG: Delta endpoint unavailable, merging full snapshots instead");
+                    deltaSupported = false;
+                    syncAppointments().whenComplete((changed, retryError) -> {
+                        if (retryError != null) {
+                            done.completeExceptionally(retryError);
+                        } else {
+                            done.complete(changed);
+                        }
+                    });
+                    return;
+                }
+                updateStatus("Lỗi khi đồng bộ lịch hẹn: " + cause.getMessage());
+                done.completeExceptionally(cause);
+                return;
+            }
+
+            Integer selectedId = selectedAppointmentId();
+            KeyedListMerger.Result result = delta
+                    ? index.applyChanges(changes, this::belongsToCurrentFilter)
+                    : index.applySnapshot(changes);
+            restoreSelection(selectedId, index);
+            syncWatermark = latestChange(changes, syncWatermark);
+            if (!result.isEmpty()) {
+                rememberForSnapshot();
+            }
+
+            String filterText = currentFilter == AppointmentFilter.ALL ? "tất cả" : "hôm nay";
+            lblCount.setText("Tổng: " + index.getItems().size() + " lịch hẹn " + filterText);
+            updateStatus(result.isEmpty()
+                    ? "Không có thay đổi"
+                    : "Đã đồng bộ " + result + " lịch hẹn");
+            done.complete(!result.isEmpty());
+        }, Platform::runLater);
+        return done;
+    }
+
+    private boolean belongsToCurrentFilter(AppointmentDTO appointment) {
+        if (currentFilter == AppointmentFilter.ALL) {
+            return true;
+        }
+        return appointment.getDateTime() != null
+                && appointment.getDateTime().toLocalDate().equals(LocalDate.now());
+    }
+
+    private Integer selectedAppointmentId() {
+        AppointmentDTO selected = tableAppointments.getSelectionModel().getSelectedItem();
+        return selected == null ? null : selected.getId();
+    }
+
+    private void restoreSelection(Integer selectedId, KeyedListMerger<AppointmentDTO, Integer> index) {
+        if (selectedId == null) {
+            return;
+        }
+        AppointmentDTO selected = tableAppointments.getSelectionModel().getSelectedItem();
+        if (selected == null || !selectedId.equals(selected.getId())) {
+            AppointmentDTO current = index.get(selectedId);
+            if (current != null) {
+                tableAppointments.getSelectionModel().select(current);
+            }
+        }
+    }
+
+    private static boolean sameAppointment(AppointmentDTO a, AppointmentDTO b) {
+        return Objects.equals(a.getId(), b.getId())
+                && Objects.equals(a.getUpdatedAt(), b.getUpdatedAt())
+                && Objects.equals(a.getDateTime(), b.getDateTime())
+                && Objects.equals(a.getStatus(), b.getStatus())
+                && Objects.equals(a.getReason(), b.getReason())
+                && Objects.equals(a.getPatientId(), b.getPatientId())
+                && Objects.equals(a.getPatientName(), b.getPatientName())
+                && Objects.equals(a.getDoctorId(), b.getDoctorId())
+                && Objects.equals(a.getDoctorName(), b.getDoctorName());
+    }
+
+    private static LocalDateTime latestChange(List<AppointmentDTO> appointments, LocalDateTime fallback) {
+        LocalDateTime latest = null;
+        for (AppointmentDTO appointment : appointments) {
+            LocalDateTime changedAt = appointment.getUpdatedAt() != null
+                    ? appointment.getUpdatedAt()
+                    : appointment.getCreatedAt();
+            if (changedAt != null && (latest == null || changedAt.isAfter(latest))) {
+                latest = changedAt;
+            }
+        }
+        if (latest == null) {
+            return fallback;
+        }
+        return fallback != null && fallback.isAfter(latest) ? fallback : latest;
     }
 
-    private String translateStatus(String status) {
+    static String translateStatus(String status) {
         if (status == null) return "";
         switch (status) {
             case "SCHEDULED": return "Đang khám";
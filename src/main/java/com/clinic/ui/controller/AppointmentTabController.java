@@ -5,15 +5,20 @@ import com.clinic.ui.model.DoctorDTO;
 import com.clinic.ui.model.MedicalRecordDTO;
 import com.clinic.ui.model.PatientDTO;
 import com.clinic.ui.service.ApiService;
-import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.SerializationFeature;
-import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.clinic.ui.service.AppointmentPrefetcher;
+import com.clinic.ui.service.DoctorRegistry;
+import com.clinic.ui.service.JsonCodec;
+import com.clinic.ui.service.Outbox;
+import com.clinic.ui.service.PatientLookup;
+import com.clinic.ui.service.PatientRules;
+import javafx.animation.PauseTransition;
+import javafx.application.Platform;
 import javafx.collections.FXCollections;
-import javafx.collections.ObservableList;
+import javafx.collections.transformation.FilteredList;
 import javafx.fxml.FXML;
 import javafx.scene.control.*;
 import javafx.scene.control.DatePicker;
+import javafx.util.Duration;
 import javafx.util.StringConverter;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
@@ -21,7 +26,13 @@ import java.time.format.DateTimeParseException;
 
 import java.io.IOException;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.BiConsumer;
 import java.util.function.Consumer;
 
 public class AppointmentTabController {
@@ -40,7 +51,7 @@ public class AppointmentTabController {
 
     // Step 2: Doctor
     @FXML private TitledPane paneDoctor;
-    @FXML private ComboBox<String> cmbDoctor;
+    @FXML private ComboBox<DoctorDTO> cmbDoctor;
     @FXML private TextField txtReason;
     @FXML private Button btnCreateAppointment;
 
@@ -54,32 +65,35 @@ public class AppointmentTabController {
     // Common
     @FXML private Button btnReset;
 
-    private final ObjectMapper mapper;
     private PatientDTO currentPatient;
     private AppointmentDTO currentAppointment;
     private List<DoctorDTO> doctorList;
+    private FilteredList<DoctorDTO> doctorItems;
+    private String medicalPaneTitle;
+    private final Set<CompletableFuture<?>> pendingRequests = new HashSet<>();
+    private final PauseTransition socialIdDebounce = new PauseTransition(Duration.millis(SOCIAL_ID_DEBOUNCE_MS));
+    private CompletableFuture<PatientDTO> pendingLookup;
+    private String pendingLookupId;
+    private String resolvedSocialId;
 
-    private static final List<String> GENDER_LABELS = List.of("Nam", "Nữ", "Khác");
+    private static final int SOCIAL_ID_DEBOUNCE_MS = 300;
+    private static final int MIN_SOCIAL_ID_LENGTH = 9;
 
     private String tabName = "Lịch hẹn";
     private Consumer<String> statusReporter = message -> {};
     private ProgressHandle progressHandle = ProgressHandle.NO_OP;
 
-    public AppointmentTabController() {
-        this.mapper = new ObjectMapper();
-        this.mapper.registerModule(new JavaTimeModule());
-        this.mapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
-    }
-
     @FXML
     public void initialize() {
-        cmbGender.setItems(FXCollections.observableArrayList(GENDER_LABELS));
+        cmbGender.setItems(FXCollections.observableArrayList(PatientRules.GENDER_LABELS));
 
         btnCheckPatient.setOnAction(e -> checkPatient());
         btnSavePatient.setOnAction(e -> savePatient());
         btnCreateAppointment.setOnAction(e -> createAppointment());
         btnSaveMedical.setOnAction(e -> saveMedicalRecord());
         btnReset.setOnAction(e -> resetForm());
+        socialIdDebounce.setOnFinished(e -> lookupSocialId(txtSocialId.getText().trim(), false));
+        txtSocialId.textProperty().addListener((obs, oldText, newText) -> onSocialIdEdited(newText));
 
         setPatientFieldsEditable(true);
         btnSavePatient.setDisable(true);
@@ -114,6 +128,60 @@ public class AppointmentTabController {
         dpDob.setPromptText(pattern.toLowerCase());
 
         dpDob.setEditable(true);
+
+        setupDoctorPicker();
+    }
+
+    private void setupDoctorPicker() {
+        cmbDoctor.setEditable(true);
+        cmbDoctor.setConverter(new StringConverter<DoctorDTO>() {
+            @Override
+            public String toString(DoctorDTO doctor) {
+                return doctor == null ? "" : doctor.toString();
+            }
+
+            @Override
+            public DoctorDTO fromString(String text) {
+                if (text == null || text.isBlank()) {
+                    return null;
+                }
+                DoctorDTO current = cmbDoctor.getValue();
+                if (current != null && current.toString().equals(text)) {
+                    return current;
+                }
+                return doctorItems == null || doctorItems.isEmpty() ? null : doctorItems.get(0);
+            }
+        });
+
+        cmbDoctor.getEditor().textProperty().addListener((obs, oldText, newText) -> {
+            if (doctorItems == null) {
+                return;
+            }
+            DoctorDTO selected = cmbDoctor.getValue();
+            String query = selected != null && selected.toString().equals(newText) ? null : newText;
+            Platform.runLater(() -> filterDoctors(query));
+            if (query != null && cmbDoctor.getEditor().isFocused() && !cmbDoctor.isShowing()) {
+                cmbDoctor.show();
+            }
+        });
+    }
+
+    private void filterDoctors(String query) {
+        if (doctorItems == null) {
+            return;
+        }
+        if (query == null || query.isBlank()) {
+            doctorItems.setPredicate(null);
+            return;
+        }
+
+        DoctorRegistry registry = DoctorRegistry.getInstance();
+        List<DoctorDTO> sameSpecialty = registry.getBySpecialty(query);
+        if (!sameSpecialty.isEmpty()) {
+            doctorItems.setPredicate(sameSpecialty::contains);
+        } else {
+            doctorItems.setPredicate(doctor -> registry.matches(doctor, query));
+        }
     }
 
     public void configure(String tabName,
@@ -133,165 +201,277 @@ public class AppointmentTabController {
         loadDoctors();
     }
 
-    private boolean loadDoctors() {
-        progressHandle.showIndeterminate("Đang tải danh sách bác sĩ...");
-        try {
-            String json = ApiService.getDoctors();
-            doctorList = mapper.readValue(json, new TypeReference<List<DoctorDTO>>(){});
-
-            ObservableList<String> doctorNames = FXCollections.observableArrayList();
-            for (DoctorDTO doctor : doctorList) {
-                String displayName = doctor.getFullName() + " - " + doctor.getSpecialty();
-                doctorNames.add(displayName);
-            }
+    /**
+     * Returns the controller to its freshly loaded state so its view can be
+     * reused by another tab.
+     */
+    void recycle() {
+        dispose();
+        tabName = "Lịch hẹn";
+        statusReporter = message -> {};
+        progressHandle = ProgressHandle.NO_OP;
+        resetForm();
+    }
 
-            cmbDoctor.setItems(doctorNames);
-            updateStatus("Đã tải " + doctorList.size() + " bác sĩ");
-            return true;
-
-        } catch (IOException e) {
-            String errorMsg = "Không thể tải danh sách bác sĩ: " + e.getMessage();
-            updateStatus(errorMsg);
-            showError("Lỗi", "Không thể tải danh sách bác sĩ", e.getMessage());
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-            String errorMsg = "Việc tải danh sách bác sĩ bị gián đoạn";
-            updateStatus(errorMsg);
-            showError("Lỗi", "Không thể tải danh sách bác sĩ", errorMsg);
-        } catch (Exception e) {
-            String errorMsg = "Lỗi không xác định khi tải danh sách bác sĩ: " + e.getMessage();
-            updateStatus(errorMsg);
-            showError("Lỗi", "Không thể tải danh sách bác sĩ", e.getMessage());
-        } finally {
-            progressHandle.hide();
+    public void dispose() {
+        for (CompletableFuture<?> request : new ArrayList<>(pendingRequests)) {
+            request.cancel(true);
         }
-        return false;
+        pendingRequests.clear();
     }
 
-    private boolean ensureDoctorsAvailable() {
+    private CompletableFuture<Boolean> loadDoctors() {
+        progressHandle.showIndeterminate("Đang tải danh sách bác sĩ...");
+        return track(DoctorRegistry.getInstance().getDoctors().copy())
+                .handleAsync((doctors, error) -> {
+                    progressHandle.hide();
+                    if (ApiService.isCancellation(error)) {
+                        throw new CancellationException();
+                    }
+                    if (error != null) {
+                        Throwable cause = ApiService.unwrap(error);
+                        String errorMsg = cause instanceof IOException
+                                ? "Không thể tải danh sách bác sĩ: " + cause.getMessage()
+                                : "Lỗi không xác định khi tải danh sách bác sĩ: " + cause.getMessage();
+                        updateStatus(errorMsg);
+                        showError("Lỗi", "Không thể tải danh sách bác sĩ", cause.getMessage());
+                        return false;
+                    }
+
+                    doctorList = doctors;
+                    doctorItems = new FilteredList<>(FXCollections.observableList(doctors));
+                    cmbDoctor.setItems(doctorItems);
+                    updateStatus("Đã tải " + doctorList.size() + " bác sĩ");
+                    return true;
+                }, Platform::runLater);
+    }
+
+    private CompletableFuture<Boolean> ensureDoctorsAvailable() {
         if (doctorList == null || doctorList.isEmpty() || cmbDoctor.getItems() == null || cmbDoctor.getItems().isEmpty()) {
             return loadDoctors();
         }
-        return true;
+        return CompletableFuture.completedFuture(true);
     }
 
     public void loadAppointment(AppointmentDTO appointment) {
         System.out.println("DEBUG: Loading appointment for viewing: " + appointment.getId());
 
         progressHandle.showIndeterminate("Đang tải thông tin lịch hẹn...");
-        try {
-            String patientJson = ApiService.getPatientById(appointment.getPatientId());
-            currentPatient = mapper.readValue(patientJson, PatientDTO.class);
-
-            txtSocialId.setText(currentPatient.getSocialId());
-            txtFullName.setText(currentPatient.getFullName());
-            dpDob.setValue(currentPatient.getDob());
-            cmbGender.setValue(toGenderLabel(currentPatient.getGender()));
-            txtPhone.setText(currentPatient.getPhone());
-            txtEmail.setText(currentPatient.getEmail());
-            txtAddress.setText(currentPatient.getAddress());
-
-            setPatientFieldsEditable(false);
-            btnCheckPatient.setDisable(true);
-            btnSavePatient.setDisable(true);
-
-            lblPatientStatus.setText("✓ Bệnh nhân: " + currentPatient.getFullName());
-            lblPatientStatus.setStyle("-fx-text-fill: green;");
-
-            if (!ensureDoctorsAvailable()) {
-                showError("Lỗi", "Không thể tải danh sách bác sĩ", "Vui lòng thử lại");
-                return;
+        currentAppointment = appointment;
+        txtReason.setText(appointment.getReason());
+        setMedicalRecordLoading(true);
+
+        // Patient, doctor and medical record are independent: fetch them together
+        // and fill each section as soon as its own data arrives.
+        CompletableFuture<PatientDTO> patientRequest = track(PatientLookup.getInstance().findById(appointment.getPatientId()));
+        CompletableFuture<DoctorDTO> doctorRequest = track(DoctorRegistry.getInstance().resolve(appointment.getDoctorId()).copy());
+        CompletableFuture<MedicalRecordDTO> recordRequest = track(AppointmentPrefetcher.getInstance().getMedicalRecord(appointment.getId()));
+        CompletableFuture<Boolean> doctorsReady = ensureDoctorsAvailable();
+
+        boolean[] failureReported = new boolean[1];
+        Consumer<Throwable> onFailure = e -> {
+            if (!failureReported[0]) {
+                failureReported[0] = true;
+                onLoadAppointmentFailed(e);
             }
+        };
+
+        onFxThread(patientRequest, this::showLoadedPatient, onFailure);
+        onFxThread(doctorsReady.thenCombine(doctorRequest, (available, doctor) -> available ? doctor : null),
+                doctor -> {
+                    if (doctor == null) {
+                        showError("Lỗi", "Không thể tải danh sách bác sĩ", "Vui lòng thử lại");
+                        return;
+                    }
+                    cmbDoctor.setValue(doctor);
+
+                    paneDoctor.setDisable(false);
+                    btnCreateAppointment.setDisable(true);
+                },
+                onFailure);
+        onFxThread(recordRequest,
+                medical -> {
+                    setMedicalRecordLoading(false);
+                    txtSymptoms.setText(medical.getSymptoms());
+                    txtDiagnosis.setText(medical.getDiagnosis());
+                    txtTreatment.setText(medical.getTreatment());
 
-            String doctorJson = ApiService.getDoctorById(appointment.getDoctorId());
-            DoctorDTO doctor = mapper.readValue(doctorJson, DoctorDTO.class);
-            String doctorDisplay = doctor.getFullName() + " - " + doctor.getSpecialty();
-            cmbDoctor.setValue(doctorDisplay);
+                    paneMedical.setDisable(false);
+                    btnSaveMedical.setDisable(true);
+
+                    updateStatus("Đang xem lịch hẹn đã hoàn tất #" + appointment.getId());
+                },
+                e -> {
+                    setMedicalRecordLoading(false);
+                    if (appointment.getStatus().equals("SCHEDULED")) {
+                        paneMedical.setDisable(false);
+                        btnSaveMedical.setDisable(false);
+
+                        updateStatus("Lịch hẹn #" + appointment.getId() + " - Thêm bệnh án để hoàn tất");
+                    } else {
+                        paneMedical.setDisable(true);
+                        updateStatus("Đang xem lịch hẹn #" + appointment.getId());
+                    }
+                });
 
-            txtReason.setText(appointment.getReason());
+        CompletableFuture.allOf(patientRequest, doctorRequest, recordRequest)
+                .whenCompleteAsync((ignored, error) -> progressHandle.hide(), Platform::runLater);
+    }
 
-            currentAppointment = appointment;
+    private void showLoadedPatient(PatientDTO patient) {
+        currentPatient = patient;
 
-            paneDoctor.setDisable(false);
-            btnCreateAppointment.setDisable(true);
+        txtSocialId.setText(currentPatient.getSocialId());
+        txtFullName.setText(currentPatient.getFullName());
+        dpDob.setValue(currentPatient.getDob());
+        cmbGender.setValue(PatientRules.toGenderLabel(currentPatient.getGender()));
+        txtPhone.setText(currentPatient.getPhone());
+        txtEmail.setText(currentPatient.getEmail());
+        txtAddress.setText(currentPatient.getAddress());
 
-            try {
-                String medicalJson = ApiService.getMedicalRecordByAppointmentId(appointment.getId());
-                MedicalRecordDTO medical = mapper.readValue(medicalJson, MedicalRecordDTO.class);
+        setPatientFieldsEditable(false);
+        btnCheckPatient.setDisable(true);
+        btnSavePatient.setDisable(true);
 
-                txtSymptoms.setText(medical.getSymptoms());
-                txtDiagnosis.setText(medical.getDiagnosis());
-                txtTreatment.setText(medical.getTreatment());
+        lblPatientStatus.setText("✓ Bệnh nhân: " + currentPatient.getFullName());
+        lblPatientStatus.setStyle("-fx-text-fill: green;");
+    }
 
-                paneMedical.setDisable(false);
-                btnSaveMedical.setDisable(true);
+    private void setMedicalRecordLoading(boolean loading) {
+        if (medicalPaneTitle == null) {
+            medicalPaneTitle = paneMedical.getText();
+        }
+        paneMedical.setText(loading ? medicalPaneTitle + " (đang tải bệnh án...)" : medicalPaneTitle);
+        if (loading) {
+            paneMedical.setDisable(true);
+        }
+    }
 
-                updateStatus("Đang xem lịch hẹn đã hoàn tất #" + appointment.getId());
+    private void onLoadAppointmentFailed(Throwable e) {
+        System.err.println("ERROR loading appointment: " + e.getMessage());
+        e.printStackTrace();
+        showError("Lỗi", "Không thể tải lịch hẹn", e.getMessage());
+    }
 
-            } catch (Exception e) {
-                if (appointment.getStatus().equals("SCHEDULED")) {
-                    paneMedical.setDisable(false);
-                    btnSaveMedical.setDisable(false);
+    private DoctorDTO getSelectedDoctor() {
+        return cmbDoctor.getValue();
+    }
 
-                    updateStatus("Lịch hẹn #" + appointment.getId() + " - Thêm bệnh án để hoàn tất");
-                } else {
-                    paneMedical.setDisable(true);
-                    updateStatus("Đang xem lịch hẹn #" + appointment.getId());
-                }
-            }
+    private void checkPatient() {
+        String socialId = txtSocialId.getText().trim();
 
-        } catch (Exception e) {
-            System.err.println("ERROR loading appointment: " + e.getMessage());
-            e.printStackTrace();
-            showError("Lỗi", "Không thể tải lịch hẹn", e.getMessage());
-        } finally {
-            progressHandle.hide();
+        if (socialId.isEmpty()) {
+            showWarning("Lỗi xác thực", "Vui lòng nhập mã định danh");
+            return;
         }
+        if (socialId.equals(resolvedSocialId)) {
+            return;
+        }
+        lookupSocialId(socialId, true);
     }
 
-    private DoctorDTO getSelectedDoctor() {
-        String selectedName = cmbDoctor.getValue();
-        if (selectedName == null || doctorList == null) {
-            return null;
+    private void onSocialIdEdited(String text) {
+        if (currentAppointment != null) {
+            return;
+        }
+        String socialId = text == null ? "" : text.trim();
+        if (socialId.equals(resolvedSocialId)) {
+            socialIdDebounce.stop();
+            return;
         }
+        resolvedSocialId = null;
+        cancelSocialIdLookup();
+        if (socialId.length() >= MIN_SOCIAL_ID_LENGTH) {
+            socialIdDebounce.playFromStart();
+        }
+    }
 
-        for (DoctorDTO doctor : doctorList) {
-            String displayName = doctor.getFullName() + " - " + doctor.getSpecialty();
-            if (displayName.equals(selectedName)) {
-                return doctor;
-            }
+    /**
+     * Looks the patient up while the id is typed, superseding any earlier lookup.
+     * An explicit check joins a lookup that is already running for the same id.
+     */
+    private void lookupSocialId(String socialId, boolean explicit) {
+        socialIdDebounce.stop();
+        CompletableFuture<PatientDTO> request = pendingLookup;
+        if (request == null || !socialId.equals(pendingLookupId)) {
+            cancelSocialIdLookup();
+            request = track(PatientLookup.getInstance().findBySocialId(socialId));
+            pendingLookup = request;
+            pendingLookupId = socialId;
+
+            CompletableFuture<PatientDTO> current = request;
+            onFxThread(request,
+                    patient -> {
+                        if (pendingLookup == current) {
+                            pendingLookup = null;
+                            showLookupResult(socialId, patient);
+                        }
+                    },
+                    e -> {
+                        if (pendingLookup == current) {
+                            pendingLookup = null;
+                            updateStatus("Không thể kiểm tra bệnh nhân: " + e.getMessage());
+                        }
+                    });
+        }
+
+        if (explicit) {
+            progressHandle.showIndeterminate("Đang kiểm tra bệnh nhân...");
+            btnCheckPatient.setDisable(true);
+            request.whenCompleteAsync((patient, error) -> {
+                progressHandle.hide();
+                btnCheckPatient.setDisable(false);
+                if (error != null && !ApiService.isCancellation(error)) {
+                    showError("Lỗi", "Không thể kiểm tra bệnh nhân", ApiService.unwrap(error).getMessage());
+                }
+            }, Platform::runLater);
         }
+    }
 
-        return null;
+    private void cancelSocialIdLookup() {
+        socialIdDebounce.stop();
+        if (pendingLookup != null) {
+            pendingLookup.cancel(true);
+            pendingLookup = null;
+            pendingLookupId = null;
+        }
     }
 
-    private void checkPatient() {
-        String socialId = txtSocialId.getText().trim();
+    private void showLookupResult(String socialId, PatientDTO patient) {
+        resolvedSocialId = socialId;
+        if (patient == null) {
+            if (currentPatient != null) {
+                currentPatient = null;
+                clearPatientFields();
+            }
+            lblPatientStatus.setText("Không tìm thấy bệnh nhân. Vui lòng nhập thông tin để tạo mới.");
+            lblPatientStatus.setStyle("-fx-text-fill: orange;");
 
-        if (socialId.isEmpty()) {
-            showWarning("Lỗi xác thực", "Vui lòng nhập mã định danh");
+            setPatientFieldsEditable(true);
+            btnSavePatient.setDisable(false);
+            paneDoctor.setDisable(true);
+
+            updateStatus("Không tìm thấy bệnh nhân. Hãy nhập thông tin để tạo mới.");
             return;
         }
 
-        progressHandle.showIndeterminate("Đang kiểm tra bệnh nhân...");
-        try {
-            String json = ApiService.getPatientBySocialId(socialId);
-            currentPatient = mapper.readValue(json, PatientDTO.class);
+        currentPatient = patient;
 
-            txtFullName.setText(currentPatient.getFullName());
-            dpDob.setValue(currentPatient.getDob());
-            cmbGender.setValue(toGenderLabel(currentPatient.getGender()));
-            txtPhone.setText(currentPatient.getPhone());
-            txtEmail.setText(currentPatient.getEmail());
-            txtAddress.setText(currentPatient.getAddress());
+        txtFullName.setText(currentPatient.getFullName());
+        dpDob.setValue(currentPatient.getDob());
+        cmbGender.setValue(PatientRules.toGenderLabel(currentPatient.getGender()));
+        txtPhone.setText(currentPatient.getPhone());
+        txtEmail.setText(currentPatient.getEmail());
+        txtAddress.setText(currentPatient.getAddress());
 
-            setPatientFieldsEditable(false);
-            btnSavePatient.setDisable(true);
+        setPatientFieldsEditable(false);
+        btnSavePatient.setDisable(true);
 
-            lblPatientStatus.setText("✓ Đã tìm thấy bệnh nhân: " + currentPatient.getFullName());
-            lblPatientStatus.setStyle("-fx-text-fill: green;");
+        lblPatientStatus.setText("✓ Đã tìm thấy bệnh nhân: " + currentPatient.getFullName());
+        lblPatientStatus.setStyle("-fx-text-fill: green;");
 
-            if (ensureDoctorsAvailable()) {
+        ensureDoctorsAvailable().thenAccept(available -> {
+            if (available) {
                 paneDoctor.setDisable(false);
                 updateStatus("Đã tìm thấy bệnh nhân. Vui lòng chọn bác sĩ.");
             } else {
@@ -299,67 +479,69 @@ public class AppointmentTabController {
                 lblPatientStatus.setText("Đã tìm thấy bệnh nhân nhưng không tải được danh sách bác sĩ.");
                 lblPatientStatus.setStyle("-fx-text-fill: red;");
             }
+        });
+    }
 
-        } catch (IOException e) {
-            if (e.getMessage().contains("not found")) {
-                lblPatientStatus.setText("Không tìm thấy bệnh nhân. Vui lòng nhập thông tin để tạo mới.");
-                lblPatientStatus.setStyle("-fx-text-fill: orange;");
-
-                setPatientFieldsEditable(true);
-                btnSavePatient.setDisable(false);
-
-                updateStatus("Không tìm thấy bệnh nhân. Hãy nhập thông tin để tạo mới.");
-            } else {
-                showError("Lỗi", "Không thể kiểm tra bệnh nhân", e.getMessage());
-            }
-        } catch (Exception e) {
-            showError("Lỗi", "Không thể kiểm tra bệnh nhân", e.getMessage());
-        } finally {
-            progressHandle.hide();
-        }
+    private void clearPatientFields() {
+        txtFullName.clear();
+        dpDob.setValue(null);
+        cmbGender.setValue(null);
+        txtPhone.clear();
+        txtEmail.clear();
+        txtAddress.clear();
     }
 
     private void savePatient() {
-        if (!validatePatientFields()) {
+        PatientDTO newPatient = new PatientDTO();
+        newPatient.setSocialId(txtSocialId.getText().trim());
+        newPatient.setFullName(txtFullName.getText().trim());
+        newPatient.setDob(dpDob.getValue());
+        newPatient.setGender(PatientRules.toGenderCode(cmbGender.getValue()));
+        newPatient.setPhone(txtPhone.getText().trim());
+        newPatient.setEmail(txtEmail.getText().trim());
+        newPatient.setAddress(txtAddress.getText().trim());
+
+        String problem = PatientRules.validate(newPatient);
+        if (problem != null) {
+            showWarning("Lỗi xác thực", problem);
             return;
         }
 
         progressHandle.showIndeterminate("Đang tạo hồ sơ bệnh nhân...");
-        try {
-            PatientDTO newPatient = new PatientDTO();
-            newPatient.setSocialId(txtSocialId.getText().trim());
-            newPatient.setFullName(txtFullName.getText().trim());
-            newPatient.setDob(dpDob.getValue());
-            newPatient.setGender(toGenderCode(cmbGender.getValue()));
-            newPatient.setPhone(txtPhone.getText().trim());
-            newPatient.setEmail(txtEmail.getText().trim());
-            newPatient.setAddress(txtAddress.getText().trim());
-
-            String jsonBody = mapper.writeValueAsString(newPatient);
-            String response = ApiService.createPatient(jsonBody);
-
-            currentPatient = mapper.readValue(response, PatientDTO.class);
-
-            lblPatientStatus.setText("✓ Đã tạo bệnh nhân: " + currentPatient.getFullName());
-            lblPatientStatus.setStyle("-fx-text-fill: green;");
-
-            setPatientFieldsEditable(false);
-            btnSavePatient.setDisable(true);
-
-            if (ensureDoctorsAvailable()) {
-                paneDoctor.setDisable(false);
-                updateStatus("Tạo bệnh nhân thành công. Vui lòng chọn bác sĩ.");
-            } else {
-                paneDoctor.setDisable(true);
-                lblPatientStatus.setText("Đã tạo bệnh nhân nhưng không tải được danh sách bác sĩ.");
-                lblPatientStatus.setStyle("-fx-text-fill: red;");
-            }
-
-        } catch (Exception e) {
-            showError("Lỗi", "Không thể tạo bệnh nhân", e.getMessage());
-        } finally {
-            progressHandle.hide();
-        }
+        btnSavePatient.setDisable(true);
+        onFxThread(track(PatientLookup.getInstance().createPatient(newPatient)),
+                entry -> {
+                    progressHandle.hide();
+                    currentPatient = newPatient;
+                    resolvedSocialId = newPatient.getSocialId();
+
+                    lblPatientStatus.setText("✓ Đã lưu bệnh nhân: " + currentPatient.getFullName() + " (đang đồng bộ...)");
+                    lblPatientStatus.setStyle("-fx-text-fill: green;");
+
+                    setPatientFieldsEditable(false);
+                    whenSynced(entry, response -> {
+                        if (currentPatient == newPatient) {
+                            currentPatient = JsonCodec.read(response, PatientDTO.class);
+                            lblPatientStatus.setText("✓ Đã tạo bệnh nhân: " + currentPatient.getFullName());
+                        }
+                    }, "Máy chủ không nhận hồ sơ bệnh nhân");
+
+                    ensureDoctorsAvailable().thenAccept(available -> {
+                        if (available) {
+                            paneDoctor.setDisable(false);
+                            updateStatus("Tạo bệnh nhân thành công. Vui lòng chọn bác sĩ.");
+                        } else {
+                            paneDoctor.setDisable(true);
+                            lblPatientStatus.setText("Đã tạo bệnh nhân nhưng không tải được danh sách bác sĩ.");
+                            lblPatientStatus.setStyle("-fx-text-fill: red;");
+                        }
+                    });
+                },
+                e -> {
+                    progressHandle.hide();
+                    btnSavePatient.setDisable(false);
+                    showError("Lỗi", "Không thể tạo bệnh nhân", e.getMessage());
+                });
     }
 
     private void createAppointment() {
@@ -368,43 +550,57 @@ public class AppointmentTabController {
             return;
         }
 
-        if (!ensureDoctorsAvailable()) {
-            showError("Lỗi", "Không có dữ liệu bác sĩ", "Không thể tải danh sách bác sĩ. Vui lòng thử lại.");
-            return;
-        }
-
-        DoctorDTO selectedDoctor = getSelectedDoctor();
-        if (selectedDoctor == null) {
-            showWarning("Lỗi xác thực", "Vui lòng chọn bác sĩ");
-            return;
-        }
-
-        progressHandle.showIndeterminate("Đang tạo lịch hẹn...");
-        try {
-            AppointmentDTO appointment = new AppointmentDTO();
-            appointment.setPatientId(currentPatient.getId());
-            appointment.setDoctorId(selectedDoctor.getId());
-            appointment.setDateTime(LocalDateTime.now());
-            appointment.setStatus("SCHEDULED");
-            appointment.setReason(txtReason.getText().trim());
-
-            String jsonBody = mapper.writeValueAsString(appointment);
-            String response = ApiService.createAppointment(jsonBody);
+        ensureDoctorsAvailable().thenAccept(available -> {
+            if (!available) {
+                showError("Lỗi", "Không có dữ liệu bác sĩ", "Không thể tải danh sách bác sĩ. Vui lòng thử lại.");
+                return;
+            }
 
-            currentAppointment = mapper.readValue(response, AppointmentDTO.class);
+            DoctorDTO selectedDoctor = getSelectedDoctor();
+            if (selectedDoctor == null) {
+                showWarning("Lỗi xác thực", "Vui lòng chọn bác sĩ");
+                return;
+            }
 
-            showInfo("Thành công", "Tạo lịch hẹn thành công!");
+            submitAppointment(selectedDoctor);
+        });
+    }
 
-            paneDoctor.setDisable(true);
-            paneMedical.setDisable(false);
+    private void submitAppointment(DoctorDTO selectedDoctor) {
+        AppointmentDTO appointment = new AppointmentDTO();
+        appointment.setPatientId(currentPatient.getId());
+        appointment.setDoctorId(selectedDoctor.getId());
+        appointment.setDateTime(LocalDateTime.now());
+        appointment.setStatus("SCHEDULED");
+        appointment.setReason(txtReason.getText().trim());
 
-            updateStatus("Đã tạo lịch hẹn. Vui lòng nhập thông tin khám bệnh.");
+        progressHandle.showIndeterminate("Đang tạo lịch hẹn...");
+        btnCreateAppointment.setDisable(true);
+        onFxThread(track(Outbox.getInstance().enqueue(Outbox.Kind.APPOINTMENT, appointment)),
+                entry -> {
+                    progressHandle.hide();
+                    btnCreateAppointment.setDisable(false);
+                    appointment.setId(entry.getLocalId());
+                    currentAppointment = appointment;
+                    whenSynced(entry, response -> {
+                        if (currentAppointment == appointment) {
+                            currentAppointment = JsonCodec.read(response, AppointmentDTO.class);
+                            updateStatus("Đã đồng bộ lịch hẹn #" + currentAppointment.getId());
+                        }
+                    }, "Máy chủ không nhận lịch hẹn");
+
+                    showInfo("Thành công", "Tạo lịch hẹn thành công!");
+
+                    paneDoctor.setDisable(true);
+                    paneMedical.setDisable(false);
 
-        } catch (Exception e) {
-            showError("Lỗi", "Không thể tạo lịch hẹn", e.getMessage());
-        } finally {
-            progressHandle.hide();
-        }
+                    updateStatus("Đã tạo lịch hẹn. Vui lòng nhập thông tin khám bệnh.");
+                },
+                e -> {
+                    progressHandle.hide();
+                    btnCreateAppointment.setDisable(false);
+                    showError("Lỗi", "Không thể tạo lịch hẹn", e.getMessage());
+                });
     }
 
     private void saveMedicalRecord() {
@@ -418,64 +614,111 @@ public class AppointmentTabController {
             return;
         }
 
+        MedicalRecordDTO medicalRecord = new MedicalRecordDTO();
+        medicalRecord.setAppointmentId(currentAppointment.getId());
+        medicalRecord.setSymptoms(txtSymptoms.getText().trim());
+        medicalRecord.setDiagnosis(txtDiagnosis.getText().trim());
+        medicalRecord.setTreatment(txtTreatment.getText().trim());
+
         progressHandle.showIndeterminate("Đang lưu bệnh án...");
-        try {
-            MedicalRecordDTO medicalRecord = new MedicalRecordDTO();
-            medicalRecord.setAppointmentId(currentAppointment.getId());
-            medicalRecord.setSymptoms(txtSymptoms.getText().trim());
-            medicalRecord.setDiagnosis(txtDiagnosis.getText().trim());
-            medicalRecord.setTreatment(txtTreatment.getText().trim());
+        btnSaveMedical.setDisable(true);
+        onFxThread(track(Outbox.getInstance().enqueue(Outbox.Kind.MEDICAL_RECORD, medicalRecord)),
+                entry -> {
+                    progressHandle.hide();
+                    btnSaveMedical.setDisable(false);
+                    whenSynced(entry, response -> updateStatus("Đã đồng bộ bệnh án lên máy chủ"),
+                            "Máy chủ không nhận bệnh án");
 
-            String jsonBody = mapper.writeValueAsString(medicalRecord);
-            ApiService.createMedicalRecord(jsonBody);
+                    showInfo("Thành công", "Đã lưu bệnh án và hoàn tất lịch hẹn!");
 
-            showInfo("Thành công", "Đã lưu bệnh án và hoàn tất lịch hẹn!");
+                    updateStatus("Hoàn tất lịch hẹn thành công!");
 
-            updateStatus("Hoàn tất lịch hẹn thành công!");
+                    boolean createAnother = showConfirmation(
+                            "Tạo thêm?",
+                            "Hoàn tất lịch hẹn thành công!",
+                            "Bạn có muốn tạo lịch hẹn khác không?"
+                    );
 
-            boolean createAnother = showConfirmation(
-                    "Tạo thêm?",
-                    "Hoàn tất lịch hẹn thành công!",
-                    "Bạn có muốn tạo lịch hẹn khác không?"
-            );
+                    if (createAnother) {
+                        resetForm();
+                    } else {
+                        disableAllFields();
+                    }
+                },
+                e -> {
+                    progressHandle.hide();
+                    btnSaveMedical.setDisable(false);
+                    showError("Lỗi", "Không thể lưu bệnh án", e.getMessage());
+                });
+    }
+
+    /**
+     * Follows a queued write until the server has it. By then the form has
+     * usually moved on, so a rejection is reported on its own.
+     */
+    private void whenSynced(Outbox.Entry entry, Consumer<String> onSynced, String failureHeader) {
+        onFxThread(track(entry.getResult().copy()), onSynced, e -> {
+            updateStatus(failureHeader + ": " + e.getMessage());
+            showError("Lỗi đồng bộ", failureHeader, e.getMessage());
+        });
+    }
 
-            if (createAnother) {
-                resetForm();
+    private <T> CompletableFuture<T> track(CompletableFuture<T> request) {
+        pendingRequests.add(request);
+        request.whenCompleteAsync((value, error) -> pendingRequests.remove(request), Platform::runLater);
+        return request;
+    }
+
+    /**
+     * Delivers the result on the FX thread. Results that are already available,
+     * e.g. prefetched or cached, are applied immediately so they show up in the
+     * same frame.
+     */
+    private <T> void onFxThread(CompletableFuture<T> request, Consumer<T> onSuccess, Consumer<Throwable> onError) {
+        BiConsumer<T, Throwable> handler = (value, error) -> {
+            if (ApiService.isCancellation(error)) {
+                return;
+            }
+            if (error != null) {
+                onError.accept(ApiService.unwrap(error));
             } else {
-                disableAllFields();
+                onSuccess.accept(value);
             }
-
-        } catch (Exception e) {
-            showError("Lỗi", "Không thể lưu bệnh án", e.getMessage());
-        } finally {
-            progressHandle.hide();
+        };
+        if (request.isDone() && Platform.isFxApplicationThread()) {
+            request.whenComplete(handler);
+        } else {
+            request.whenCompleteAsync(handler, Platform::runLater);
         }
     }
 
     private void resetForm() {
+        cancelSocialIdLookup();
         txtSocialId.clear();
-        txtFullName.clear();
-        dpDob.setValue(null);
-        cmbGender.setValue(null);
-        txtPhone.clear();
-        txtEmail.clear();
-        txtAddress.clear();
+        clearPatientFields();
         txtReason.clear();
         txtSymptoms.clear();
         txtDiagnosis.clear();
         txtTreatment.clear();
         cmbDoctor.setValue(null);
+        if (doctorItems != null) {
+            doctorItems.setPredicate(null);
+        }
 
         lblPatientStatus.setText("");
 
         currentPatient = null;
         currentAppointment = null;
+        resolvedSocialId = null;
 
         setPatientFieldsEditable(true);
         btnCheckPatient.setDisable(false);
         btnSavePatient.setDisable(true);
         paneDoctor.setDisable(true);
+        btnCreateAppointment.setDisable(false);
+        setMedicalRecordLoading(false);
         paneMedical.setDisable(true);
+        btnSaveMedical.setDisable(false);
 
         updateStatus("Nhập mã định danh bệnh nhân để bắt đầu");
     }
@@ -499,54 +742,6 @@ public class AppointmentTabController {
         txtAddress.setEditable(editable);
     }
 
-    private boolean validatePatientFields() {
-        if (txtFullName.getText().trim().isEmpty()) {
-            showWarning("Lỗi xác thực", "Vui lòng nhập họ và tên");
-            return false;
-        }
-        if (dpDob.getValue() == null) {
-            showWarning("Lỗi xác thực", "Vui lòng chọn ngày sinh");
-            return false;
-        }
-        if (cmbGender.getValue() == null) {
-            showWarning("Lỗi xác thực", "Vui lòng chọn giới tính");
-            return false;
-        }
-        return true;
-    }
-
-    private String toGenderLabel(String code) {
-        if (code == null) {
-            return null;
-        }
-        switch (code) {
-            case "MALE":
-                return "Nam";
-            case "FEMALE":
-                return "Nữ";
-            case "OTHER":
-                return "Khác";
-            default:
-                return code;
-        }
-    }
-
-    private String toGenderCode(String label) {
-        if (label == null) {
-            return null;
-        }
-        switch (label) {
-            case "Nam":
-                return "MALE";
-            case "Nữ":
-                return "FEMALE";
-            case "Khác":
-                return "OTHER";
-            default:
-                return label;
-        }
-    }
-
     private void updateStatus(String message) {
         statusReporter.accept("[" + tabName + "] " + message);
         System.out.println("STATUS: [" + tabName + "] " + message);
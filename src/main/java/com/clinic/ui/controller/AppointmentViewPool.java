@@ -0,0 +1,138 @@
+package com.clinic.ui.controller;
+
+import javafx.fxml.FXMLLoader;
+import javafx.scene.Parent;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Hands out ready-built appointment_view.fxml instances. A small pool is filled
+ * on a low-priority background thread, so opening a tab does not pay for
+ * parsing the FXML and building its node graph; closed tabs give their view
+ * back after the form has been reset.
+ */
+public class AppointmentViewPool {
+    private static final String VIEW = "/views/appointment_view.fxml";
+    private static final int POOL_SIZE = 2;
+
+    private static final AppointmentViewPool INSTANCE = new AppointmentViewPool();
+
+    public static final class View {
+        private final Parent root;
+        private final AppointmentTabController controller;
+
+        private View(Parent root, AppointmentTabController controller) {
+            this.root = root;
+            this.controller = controller;
+        }
+
+        public Parent getRoot() {
+            return root;
+        }
+
+        public AppointmentTabController getController() {
+            return controller;
+        }
+    }
+
+    private final Deque<View> idle = new ArrayDeque<>();
+    private final ExecutorService builder = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "appointment-view-pool");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        return thread;
+    });
+    private int building;
+    private boolean backgroundBuildFailed;
+
+    AppointmentViewPool() {
+    }
+
+    public static AppointmentViewPool getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Starts filling the pool in the background. Meant to be called once the
+     * main window is showing.
+     */
+    public void warmUp() {
+        refill();
+    }
+
+    /**
+     * Takes a pooled view, or builds one on the spot when the pool is empty.
+     * Must be called on the FX thread.
+     */
+    public View acquire() throws IOException {
+        long started = System.nanoTime();
+        View view;
+        synchronized (this) {
+            view = idle.pollFirst();
+        }
+        boolean pooled = view != null;
+        if (view == null) {
+            view = build();
+        }
+        System.out.println("DEBUG: Appointment view " + (pooled ? "taken from pool" : "built") + " in "
+                + (System.nanoTime() - started) / 1_000 + " us");
+        refill();
+        return view;
+    }
+
+    /**
+     * Cancels the view's pending work, resets its form and keeps it for the next
+     * tab. The view must already be detached from its tab.
+     */
+    public void release(View view) {
+        view.controller.recycle();
+        synchronized (this) {
+            if (idle.size() < POOL_SIZE) {
+                idle.addLast(view);
+            }
+        }
+    }
+
+    private void refill() {
+        int missing;
+        synchronized (this) {
+            if (backgroundBuildFailed) {
+                return;
+            }
+            missing = POOL_SIZE - idle.size() - building;
+            building += Math.max(missing, 0);
+        }
+        for (int i = 0; i < missing; i++) {
+            builder.execute(this::buildInBackground);
+        }
+    }
+
+    private void buildInBackground() {
+        View view = null;
+        try {
+            view = build();
+        } catch (IOException | RuntimeException e) {
+            // Some controls refuse to be built off the FX thread; stop trying and
+            // let acquire() build views on demand instead.
+            System.err.println("ERROR pre-building appointment view: " + e.getMessage());
+        }
+        synchronized (this) {
+            building--;
+            if (view == null) {
+                backgroundBuildFailed = true;
+            } else if (idle.size() < POOL_SIZE) {
+                idle.addLast(view);
+            }
+        }
+    }
+
+    private static View build() throws IOException {
+        FXMLLoader loader = new FXMLLoader(AppointmentViewPool.class.getResource(VIEW));
+        Parent root = loader.load();
+        return new View(root, loader.getController());
+    }
+}
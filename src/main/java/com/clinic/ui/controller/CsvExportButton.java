@@ -0,0 +1,93 @@
+package com.clinic.ui.controller;
+
+import com.clinic.ui.service.ApiService;
+import com.clinic.ui.service.CsvExporter;
+import javafx.application.Platform;
+import javafx.scene.control.Alert;
+import javafx.scene.control.Button;
+import javafx.stage.FileChooser;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Runs a {@link CsvExporter} from a toolbar button: asks where to save, reports
+ * progress through the view's status bar and turns the button into a cancel
+ * button while the export runs.
+ */
+final class CsvExportButton {
+    private static final String LABEL = "Xuất CSV";
+
+    private final Button button;
+    private final String filePrefix;
+    private final Function<Path, CsvExporter> exporterFor;
+    private final Consumer<String> status;
+    private CsvExporter running;
+
+    CsvExportButton(Button button, String filePrefix, Function<Path, CsvExporter> exporterFor, Consumer<String> status) {
+        this.button = button;
+        this.filePrefix = filePrefix;
+        this.exporterFor = exporterFor;
+        this.status = status;
+        button.setText(LABEL);
+        button.setOnAction(e -> onAction());
+    }
+
+    /**
+     * Cancels a running export, e.g. when the view is closed.
+     */
+    void cancel() {
+        if (running != null) {
+            running.cancel();
+        }
+    }
+
+    private void onAction() {
+        if (running != null) {
+            running.cancel();
+            button.setDisable(true);
+            return;
+        }
+
+        FileChooser chooser = new FileChooser();
+        chooser.setTitle("Lưu tệp CSV");
+        chooser.setInitialFileName(filePrefix + "-" + LocalDate.now().format(DateTimeFormatter.BASIC_ISO_DATE) + ".csv");
+        chooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("CSV", "*.csv"));
+        File file = chooser.showSaveDialog(button.getScene().getWindow());
+        if (file == null) {
+            return;
+        }
+
+        CsvExporter exporter = exporterFor.apply(file.toPath());
+        running = exporter;
+        button.setText("Dừng xuất");
+        status.accept("Đang xuất " + file.getName() + "...");
+        long started = System.nanoTime();
+        exporter.start(rows -> Platform.runLater(() -> {
+            if (running == exporter) {
+                status.accept("Đang xuất " + file.getName() + ": " + rows + " dòng");
+            }
+        })).whenCompleteAsync((rows, error) -> {
+            running = null;
+            button.setText(LABEL);
+            button.setDisable(false);
+            if (ApiService.isCancellation(error)) {
+                status.accept("Đã hủy xuất " + file.getName());
+            } else if (error != null) {
+                status.accept("Lỗi xuất CSV: " + error.getMessage());
+                Alert alert = new Alert(Alert.AlertType.ERROR);
+                alert.setTitle("Lỗi");
+                alert.setHeaderText("Không thể xuất " + file.getName());
+                alert.setContentText(error.getMessage());
+                alert.showAndWait();
+            } else {
+                status.accept(String.format("Đã xuất %d dòng vào %s (%.1f giây)",
+                        rows, file.getName(), (System.nanoTime() - started) / 1e9));
+            }
+        }, Platform::runLater);
+    }
+}
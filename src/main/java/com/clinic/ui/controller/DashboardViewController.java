@@ -0,0 +1,219 @@
+package com.clinic.ui.controller;
+
+import com.clinic.ui.model.AppointmentDTO;
+import com.clinic.ui.service.ApiService;
+import com.clinic.ui.service.AppointmentStats;
+import javafx.application.Platform;
+import javafx.beans.property.ReadOnlyObjectProperty;
+import javafx.beans.property.SimpleObjectProperty;
+import javafx.beans.property.SimpleStringProperty;
+import javafx.beans.value.ChangeListener;
+import javafx.collections.FXCollections;
+import javafx.collections.ListChangeListener;
+import javafx.collections.ObservableList;
+import javafx.fxml.FXML;
+import javafx.scene.control.*;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Appointments per doctor, status breakdown and time to completion. The
+ * "today" view follows the today list: its changes are applied to running
+ * totals one appointment at a time and the view is redrawn at most once per
+ * pulse. Longer ranges are aggregated in the background from the full list.
+ */
+public class DashboardViewController {
+    @FXML private ComboBox<String> cmbRange;
+    @FXML private Button btnRefresh;
+    @FXML private Label lblUpdated;
+    @FXML private Label lblTotal;
+    @FXML private Label lblScheduled;
+    @FXML private Label lblCompleted;
+    @FXML private Label lblCancelled;
+    @FXML private Label lblNoShow;
+    @FXML private Label lblAverageCompletion;
+    @FXML private TableView<AppointmentStats.DoctorLoad> tableDoctors;
+    @FXML private TableColumn<AppointmentStats.DoctorLoad, String> colDoctor;
+    @FXML private TableColumn<AppointmentStats.DoctorLoad, Long> colTotal;
+    @FXML private TableColumn<AppointmentStats.DoctorLoad, Long> colCompleted;
+    @FXML private TableColumn<AppointmentStats.DoctorLoad, String> colAverageCompletion;
+    @FXML private Label lblStatus;
+
+    private static final String LIVE = "Hôm nay (trực tiếp)";
+    // Number of days back from today; null means the whole history.
+    private static final Map<String, Integer> RANGES = new LinkedHashMap<>();
+
+    static {
+        RANGES.put("7 ngày qua", 7);
+        RANGES.put("30 ngày qua", 30);
+        RANGES.put("Toàn bộ", null);
+    }
+
+    private final AppointmentStats liveStats = new AppointmentStats();
+    private final ListChangeListener<AppointmentDTO> liveChanges = change -> {
+        while (change.next()) {
+            for (AppointmentDTO removed : change.getRemoved()) {
+                liveStats.remove(removed);
+            }
+            for (AppointmentDTO added : change.getAddedSubList()) {
+                liveStats.add(added);
+            }
+        }
+        scheduleLiveRender();
+    };
+    private final ChangeListener<ObservableList<AppointmentDTO>> liveListReplaced =
+            (obs, oldList, newList) -> attach(oldList, newList);
+    private ReadOnlyObjectProperty<ObservableList<AppointmentDTO>> liveSource;
+    private boolean liveRenderScheduled;
+    private CompletableFuture<AppointmentStats> pendingHistory;
+
+    @FXML
+    public void initialize() {
+        colDoctor.setCellValueFactory(cellData -> new SimpleStringProperty(doctorLabel(cellData.getValue())));
+        colTotal.setCellValueFactory(cellData -> new SimpleObjectProperty<>(cellData.getValue().getTotal()));
+        colCompleted.setCellValueFactory(cellData -> new SimpleObjectProperty<>(cellData.getValue().getCompleted()));
+        colAverageCompletion.setCellValueFactory(cellData ->
+                new SimpleStringProperty(formatDuration(cellData.getValue().getAverageCompletion())));
+
+        cmbRange.getItems().add(LIVE);
+        cmbRange.getItems().addAll(RANGES.keySet());
+        cmbRange.setValue(LIVE);
+        cmbRange.valueProperty().addListener((obs, oldRange, newRange) -> showRange());
+        btnRefresh.setOnAction(e -> showRange());
+    }
+
+    /**
+     * Follows the given list for the live view, including when it is replaced
+     * by a reload.
+     */
+    public void setLiveSource(ReadOnlyObjectProperty<ObservableList<AppointmentDTO>> source) {
+        if (liveSource != null) {
+            liveSource.removeListener(liveListReplaced);
+            attach(liveSource.get(), null);
+        }
+        liveSource = source;
+        source.addListener(liveListReplaced);
+        attach(null, source.get());
+    }
+
+    public void dispose() {
+        if (liveSource != null) {
+            liveSource.removeListener(liveListReplaced);
+            attach(liveSource.get(), null);
+            liveSource = null;
+        }
+        if (pendingHistory != null) {
+            pendingHistory.cancel(true);
+        }
+    }
+
+    private void attach(ObservableList<AppointmentDTO> oldList, ObservableList<AppointmentDTO> newList) {
+        if (oldList != null) {
+            oldList.removeListener(liveChanges);
+        }
+        liveStats.clear();
+        if (newList != null) {
+            for (AppointmentDTO appointment : newList) {
+                liveStats.add(appointment);
+            }
+            newList.addListener(liveChanges);
+        }
+        scheduleLiveRender();
+    }
+
+    private boolean isLive() {
+        return LIVE.equals(cmbRange.getValue());
+    }
+
+    private void scheduleLiveRender() {
+        if (liveRenderScheduled || !isLive()) {
+            return;
+        }
+        liveRenderScheduled = true;
+        Platform.runLater(() -> {
+            liveRenderScheduled = false;
+            if (isLive()) {
+                render(liveStats);
+            }
+        });
+    }
+
+    private void showRange() {
+        if (pendingHistory != null) {
+            pendingHistory.cancel(true);
+            pendingHistory = null;
+        }
+        if (isLive()) {
+            render(liveStats);
+            updateStatus("Đang theo dõi lịch hẹn hôm nay");
+            return;
+        }
+
+        String range = cmbRange.getValue();
+        Integer days = RANGES.get(range);
+        LocalDate from = days == null ? null : LocalDate.now().minusDays(days - 1);
+        updateStatus("Đang tổng hợp lịch hẹn (" + range.toLowerCase() + ")...");
+        long started = System.nanoTime();
+        CompletableFuture<AppointmentStats> request = AppointmentStats.collectAsync(from);
+        pendingHistory = request;
+        request.whenCompleteAsync((stats, error) -> {
+            if (pendingHistory != request) {
+                return;
+            }
+            pendingHistory = null;
+            if (ApiService.isCancellation(error)) {
+                return;
+            }
+            if (error != null) {
+                Throwable cause = ApiService.unwrap(error);
+                updateStatus("Lỗi tổng hợp lịch hẹn: " + cause.getMessage());
+                return;
+            }
+            render(stats);
+            updateStatus(String.format("Đã tổng hợp %d lịch hẹn (%s) trong %d ms", stats.getTotal(),
+                    range.toLowerCase(), (System.nanoTime() - started) / 1_000_000));
+        }, Platform::runLater);
+    }
+
+    private void render(AppointmentStats stats) {
+        lblTotal.setText("Tổng: " + stats.getTotal());
+        lblScheduled.setText(statusLabel(stats, "SCHEDULED"));
+        lblCompleted.setText(statusLabel(stats, "COMPLETED"));
+        lblCancelled.setText(statusLabel(stats, "CANCELLED"));
+        lblNoShow.setText(statusLabel(stats, "NO_SHOW"));
+        lblAverageCompletion.setText("Thời gian đến khi hoàn tất (TB): " + formatDuration(stats.getAverageCompletion()));
+        tableDoctors.setItems(FXCollections.observableArrayList(stats.getDoctorLoads()));
+        lblUpdated.setText("Cập nhật lúc " + LocalTime.now().format(DateTimeFormatter.ofPattern("HH:mm:ss")));
+    }
+
+    private static String statusLabel(AppointmentStats stats, String status) {
+        return AppointmentListViewController.translateStatus(status) + ": " + stats.getCount(status);
+    }
+
+    private static String doctorLabel(AppointmentStats.DoctorLoad load) {
+        if (load.getDoctorName() != null) {
+            return load.getDoctorName();
+        }
+        return load.getDoctorId() == null ? "(Chưa phân công)" : "Bác sĩ #" + load.getDoctorId();
+    }
+
+    private static String formatDuration(Duration duration) {
+        if (duration == null) {
+            return "-";
+        }
+        long minutes = duration.toMinutes();
+        return minutes < 60 ? minutes + " phút" : minutes / 60 + " giờ " + minutes % 60 + " phút";
+    }
+
+    private void updateStatus(String message) {
+        if (lblStatus != null) {
+            lblStatus.setText(message);
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package com.clinic.ui.controller;
+
+import javafx.collections.ObservableList;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiPredicate;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Applies keyed changes to an ObservableList in place with the minimal set of
+ * add/set/remove operations, so the TableView keeps its cells, scroll position
+ * and selection. A key-to-position index makes each update O(1); removals
+ * re-index only the rows after the removed one. A row whose content has not
+ * changed is left alone, so re-parsed copies of the same data cause no update.
+ */
+class KeyedListMerger<T, K> {
+
+    static final class Result {
+        int added;
+        int updated;
+        int removed;
+
+        boolean isEmpty() {
+            return added == 0 && updated == 0 && removed == 0;
+        }
+
+        @Override
+        public String toString() {
+            return "+" + added + " ~" + updated + " -" + removed;
+        }
+    }
+
+    private final ObservableList<T> items;
+    private final Function<T, K> keyOf;
+    private final BiPredicate<T, T> sameContent;
+    private final Map<K, Integer> positions = new HashMap<>();
+
+    KeyedListMerger(ObservableList<T> items, Function<T, K> keyOf, BiPredicate<T, T> sameContent) {
+        this.items = items;
+        this.keyOf = keyOf;
+        this.sameContent = sameContent;
+        reindexFrom(0);
+    }
+
+    ObservableList<T> getItems() {
+        return items;
+    }
+
+    T get(K key) {
+        Integer position = positions.get(key);
+        return position == null ? null : items.get(position);
+    }
+
+    /**
+     * Upserts every change that still {@code belongs} in the list and removes
+     * the ones that no longer do.
+     */
+    Result applyChanges(List<T> changes, Predicate<T> belongs) {
+        Result result = new Result();
+        for (T change : changes) {
+            if (belongs.test(change)) {
+                upsert(change, result);
+            } else if (remove(keyOf.apply(change))) {
+                result.removed++;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Merges a complete snapshot: upserts every row and removes rows whose key is
+     * no longer present. Used when the server cannot answer a delta query.
+     */
+    Result applySnapshot(List<T> snapshot) {
+        Result result = new Result();
+        Set<K> present = new HashSet<>();
+        for (T row : snapshot) {
+            present.add(keyOf.apply(row));
+            upsert(row, result);
+        }
+        List<K> stale = new ArrayList<>();
+        for (K key : positions.keySet()) {
+            if (!present.contains(key)) {
+                stale.add(key);
+            }
+        }
+        for (K key : stale) {
+            if (remove(key)) {
+                result.removed++;
+            }
+        }
+        return result;
+    }
+
+    private void upsert(T row, Result result) {
+        K key = keyOf.apply(row);
+        Integer position = positions.get(key);
+        if (position == null) {
+            items.add(row);
+            positions.put(key, items.size() - 1);
+            result.added++;
+        } else if (!sameContent.test(items.get(position), row)) {
+            items.set(position, row);
+            result.updated++;
+        }
+    }
+
+    private boolean remove(K key) {
+        Integer position = positions.remove(key);
+        if (position == null) {
+            return false;
+        }
+        items.remove((int) position);
+        reindexFrom(position);
+        return true;
+    }
+
+    private void reindexFrom(int from) {
+        for (int i = from; i < items.size(); i++) {
+            positions.put(keyOf.apply(items.get(i)), i);
+        }
+    }
+}
@@ -1,19 +1,30 @@
 package com.clinic.ui.controller;
 
 import com.clinic.ui.service.ApiService;
+import com.clinic.ui.service.CsvExporter;
+import com.clinic.ui.service.JsonCodec;
+import com.clinic.ui.service.PagedObservableList;
+import com.clinic.ui.service.PatientCache;
+import com.clinic.ui.service.PatientImporter;
+import com.clinic.ui.service.PatientSearchIndex;
 import com.clinic.ui.model.PatientDTO;
-import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.SerializationFeature;
-import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import javafx.animation.PauseTransition;
+import javafx.application.Platform;
 import javafx.fxml.FXML;
 import javafx.scene.control.*;
 import javafx.scene.control.cell.PropertyValueFactory;
 import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import javafx.stage.FileChooser;
+import javafx.util.Duration;
 
+import java.io.File;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
 
 public class PatientViewController {
     @FXML private TableView<PatientDTO> table;
@@ -29,15 +40,22 @@ public class PatientViewController {
     @FXML private Button btnRefresh;
     @FXML private Button btnSearch;
     @FXML private Button btnEdit;
+    @FXML private Button btnImport;
+    @FXML private Button btnExport;
     @FXML private Label lblStatus;
 
-    private final ObjectMapper mapper;
+    private CompletableFuture<?> pendingRequest;
+    private PagedObservableList<PatientDTO> pagedPatients;
+    private boolean pagingSupported = true;
 
-    public PatientViewController() {
-        this.mapper = new ObjectMapper();
-        this.mapper.registerModule(new JavaTimeModule());
-        this.mapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
-    }
+    private final PatientSearchIndex searchIndex = PatientSearchIndex.getInstance();
+    private final PauseTransition searchDebounce = new PauseTransition(Duration.millis(SEARCH_DEBOUNCE_MS));
+    private final ObservableList<PatientDTO> searchResults = FXCollections.observableArrayList();
+    private PatientImporter importer;
+
+    private static final int PAGE_SIZE = 100;
+    private static final int MAX_CACHED_PAGES = 10;
+    private static final int SEARCH_DEBOUNCE_MS = 150;
 
     @FXML
     public void initialize() {
@@ -64,75 +82,283 @@ public class PatientViewController {
             }
         });
 
+        // A paged list cannot be sorted on the client: sorting reads every row
+        // and so would request every page.
+        table.setSortPolicy(t -> !(t.getItems() instanceof PagedObservableList)
+                && TableView.DEFAULT_SORT_POLICY.call(t));
+
         btnRefresh.setOnAction(e -> loadPatients());
-        btnSearch.setOnAction(e -> searchPatients());
+        btnSearch.setOnAction(e -> searchPatients(true));
         btnEdit.setOnAction(e -> editPatient());
+        btnImport.setOnAction(e -> importPatients());
+        new CsvExportButton(btnExport, "benh-nhan", CsvExporter::patients, this::updateStatus);
 
-        txtSearch.setOnAction(e -> searchPatients());
+        txtSearch.setOnAction(e -> searchPatients(true));
+        searchDebounce.setOnFinished(e -> searchPatients(false));
+        txtSearch.textProperty().addListener((obs, oldText, newText) -> searchDebounce.playFromStart());
 
         table.getSelectionModel().selectedItemProperty().addListener((obs, oldSelection, newSelection) -> {
-            boolean hasSelection = newSelection != null;
+            boolean hasSelection = newSelection != null && newSelection.getId() != null;
             btnEdit.setDisable(!hasSelection);
         });
 
         btnEdit.setDisable(true);
 
         loadPatients();
+        searchIndex.load().thenRun(() -> Platform.runLater(() -> {
+            if (!isBlank(txtSearch.getText())) {
+                searchPatients(false);
+            }
+        }));
     }
 
     private void loadPatients() {
-        try {
-            updateStatus("Đang tải danh sách bệnh nhân...");
-            String json = ApiService.getPatients();
+        if (pendingRequest != null) {
+            pendingRequest.cancel(true);
+        }
+        if (pagedPatients != null) {
+            pagedPatients.cancel();
+        }
+        updateStatus("Đang tải danh sách bệnh nhân...");
 
-            List<PatientDTO> list = mapper.readValue(json, new TypeReference<List<PatientDTO>>(){});
+        if (pagingSupported) {
+            loadPatientsPaged();
+            return;
+        }
 
-            table.setItems(FXCollections.observableArrayList(list));
-            updateStatus("Đã tải " + list.size() + " bệnh nhân");
-        } catch (Exception ex) {
-            updateStatus("Lỗi tải bệnh nhân: " + ex.getMessage());
-            showError("Không thể tải bệnh nhân", "Không thể tải bệnh nhân từ máy chủ", ex.getMessage());
-            ex.printStackTrace();
+        ObservableList<PatientDTO> rows = FXCollections.observableArrayList();
+        AtomicReference<CompletableFuture<?>> holder = new AtomicReference<>();
+        CompletableFuture<Integer> request = ApiService.streamPatients(chunk -> {
+            PatientCache.getInstance().putAll(chunk);
+            Platform.runLater(() -> {
+                if (pendingRequest != holder.get()) {
+                    return;
+                }
+                if (table.getItems() != rows) {
+                    table.setItems(rows);
+                }
+                rows.addAll(chunk);
+                updateStatus("Đang tải... " + rows.size() + " bệnh nhân");
+            });
+        });
+        holder.set(request);
+        pendingRequest = request;
+
+        request.whenCompleteAsync((count, error) -> {
+            if (pendingRequest != request) {
+                return;
+            }
+            pendingRequest = null;
+            if (ApiService.isCancellation(error)) {
+                return;
+            }
+            if (error != null) {
+                Throwable ex = ApiService.unwrap(error);
+                updateStatus("Lỗi tải bệnh nhân: " + ex.getMessage());
+                showError("Không thể tải bệnh nhân", "Không thể tải bệnh nhân từ máy chủ", ex.getMessage());
+                ex.printStackTrace();
+                return;
+            }
+            if (table.getItems() != rows) {
+                table.setItems(rows);
+            }
+            updateStatus("Đã tải " + rows.size() + " bệnh nhân");
+        }, Platform::runLater);
+    }
+
+    private void loadPatientsPaged() {
+        if (pagedPatients == null) {
+            pagedPatients = new PagedObservableList<>(
+                    (offset, limit) -> ApiService.getPatientsPage(offset, limit).thenApply(page -> {
+                        PatientCache.getInstance().putAll(page.getItems());
+                        return page;
+                    }),
+                    PAGE_SIZE, MAX_CACHED_PAGES, new PatientDTO());
+            pagedPatients.setErrorHandler(ex -> updateStatus("Lỗi tải trang bệnh nhân: " + ex.getMessage()));
         }
+
+        PagedObservableList<PatientDTO> list = pagedPatients;
+        list.reload().whenComplete((total, error) -> {
+            if (ApiService.isCancellation(error) || list != pagedPatients) {
+                return;
+            }
+            if (error != null) {
+                if (ApiService.isNotFound(error)) {
+                    pagingSupported = false;
+                    pagedPatients = null;
+                    loadPatients();
+                    return;
+                }
+                updateStatus("Lỗi tải bệnh nhân: " + error.getMessage());
+                showError("Không thể tải bệnh nhân", "Không thể tải bệnh nhân từ máy chủ", error.getMessage());
+                return;
+            }
+            table.getSortOrder().clear();
+            table.setItems(list);
+            updateStatus("Đã tải " + total + " bệnh nhân");
+        });
     }
 
-    private void searchPatients() {
+    private void searchPatients(boolean explicit) {
+        searchDebounce.stop();
         String searchText = txtSearch.getText();
-        if (searchText == null || searchText.trim().isEmpty()) {
-            loadPatients();
+        if (isBlank(searchText)) {
+            if (explicit || table.getItems() == searchResults) {
+                loadPatients();
+            }
             return;
         }
 
-        try {
-            updateStatus("Đang tìm kiếm bệnh nhân...");
-            String json = ApiService.searchPatients(searchText.trim());
-
-            List<PatientDTO> list = mapper.readValue(json, new TypeReference<List<PatientDTO>>(){});
+        if (searchIndex.isReady()) {
+            searchLocally(searchText.trim());
+            return;
+        }
+        if (!explicit) {
+            updateStatus("Đang xây dựng chỉ mục tìm kiếm...");
+            return;
+        }
 
+        updateStatus("Đang tìm kiếm bệnh nhân...");
+        runPatientQuery(ApiService.searchPatientsAsync(searchText.trim()), list -> {
             table.setItems(FXCollections.observableArrayList(list));
             updateStatus("Tìm thấy " + list.size() + " bệnh nhân khớp '" + searchText + "'");
-        } catch (Exception ex) {
+        }, ex -> {
             updateStatus("Lỗi tìm kiếm bệnh nhân: " + ex.getMessage());
             showError("Không thể tìm kiếm bệnh nhân", "Không thể thực hiện tìm kiếm bệnh nhân", ex.getMessage());
-            ex.printStackTrace();
+        });
+    }
+
+    private void searchLocally(String searchText) {
+        if (pendingRequest != null) {
+            pendingRequest.cancel(true);
+            pendingRequest = null;
+        }
+        if (pagedPatients != null) {
+            pagedPatients.cancel();
+        }
+
+        long started = System.nanoTime();
+        searchResults.setAll(searchIndex.search(searchText));
+        if (table.getItems() != searchResults) {
+            table.setItems(searchResults);
+        }
+        double elapsedMs = (System.nanoTime() - started) / 1_000_000.0;
+        updateStatus(String.format("Tìm thấy %d bệnh nhân khớp '%s' (%.2f ms)", searchResults.size(), searchText, elapsedMs));
+    }
+
+    private static boolean isBlank(String text) {
+        return text == null || text.trim().isEmpty();
+    }
+
+    private void runPatientQuery(CompletableFuture<String> request,
+                                 Consumer<List<PatientDTO>> onSuccess,
+                                 Consumer<Throwable> onError) {
+        if (pendingRequest != null) {
+            pendingRequest.cancel(true);
+        }
+        if (pagedPatients != null) {
+            pagedPatients.cancel();
         }
+        pendingRequest = request;
+
+        request.thenApply(json -> JsonCodec.readList(json, PatientDTO.class))
+                .whenCompleteAsync((list, error) -> {
+                    if (pendingRequest == request) {
+                        pendingRequest = null;
+                    }
+                    if (ApiService.isCancellation(error)) {
+                        return;
+                    }
+                    if (error != null) {
+                        Throwable cause = ApiService.unwrap(error);
+                        onError.accept(cause);
+                        cause.printStackTrace();
+                        return;
+                    }
+                    PatientCache.getInstance().putAll(list);
+                    onSuccess.accept(list);
+                }, Platform::runLater);
     }
 
     private void editPatient() {
         PatientDTO selectedPatient = table.getSelectionModel().getSelectedItem();
-        if (selectedPatient == null) {
+        if (selectedPatient == null || selectedPatient.getId() == null) {
             showWarning("Chưa chọn", "Vui lòng chọn bệnh nhân để chỉnh sửa");
             return;
         }
         updateStatus("Chức năng chỉnh sửa bệnh nhân - sắp ra mắt");
     }
 
+    private void importPatients() {
+        if (importer != null) {
+            importer.cancel();
+            btnImport.setDisable(true);
+            updateStatus("Đang dừng nhập bệnh nhân...");
+            return;
+        }
+
+        FileChooser chooser = new FileChooser();
+        chooser.setTitle("Chọn tệp CSV bệnh nhân");
+        chooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("CSV", "*.csv"));
+        File file = chooser.showOpenDialog(table.getScene().getWindow());
+        if (file == null) {
+            return;
+        }
+
+        PatientImporter running = new PatientImporter(file.toPath(), ApiService.getConfig().getImportConcurrency());
+        importer = running;
+        btnImport.setText("Dừng nhập");
+        updateStatus("Đang chuẩn bị nhập " + file.getName() + "...");
+        running.start(progress -> Platform.runLater(() -> {
+            if (importer == running) {
+                updateStatus(String.format("Đang nhập %s: %.0f%% - %d dòng, %d đã tạo, %d trùng, %d lỗi",
+                        file.getName(), progress.getFraction() * 100, progress.getRows(),
+                        progress.getCreated(), progress.getSkipped(), progress.getFailed()));
+            }
+        })).whenCompleteAsync((summary, error) -> {
+            importer = null;
+            btnImport.setText("Nhập từ CSV");
+            btnImport.setDisable(false);
+            if (error != null) {
+                Throwable cause = ApiService.unwrap(error);
+                updateStatus("Lỗi nhập bệnh nhân: " + cause.getMessage());
+                showError("Lỗi", "Không thể nhập bệnh nhân từ " + file.getName(), cause.getMessage());
+                return;
+            }
+
+            String result = String.format("%d bệnh nhân đã tạo, %d trùng số định danh, %d dòng lỗi (%.1f bệnh nhân/giây)",
+                    summary.getCreated(), summary.getSkipped(), summary.getFailed(), summary.getCreatedPerSecond());
+            updateStatus("Nhập " + file.getName() + ": " + result);
+            StringBuilder details = new StringBuilder(result);
+            if (summary.getResumedAfterRow() > 0) {
+                details.append("\nTiếp tục từ sau dòng ").append(summary.getResumedAfterRow()).append('.');
+            }
+            if (summary.getRejectsFile() != null) {
+                details.append("\nCác dòng lỗi được ghi vào ").append(summary.getRejectsFile()).append('.');
+            }
+            if (summary.getStoppedBecause() != null) {
+                details.append("\nĐã dừng: ").append(summary.getStoppedBecause())
+                        .append(". Chọn lại tệp này để tiếp tục.");
+            }
+            showInfo("Nhập bệnh nhân", details.toString());
+            loadPatients();
+        }, Platform::runLater);
+    }
+
     private void updateStatus(String message) {
         if (lblStatus != null) {
             lblStatus.setText(message);
         }
     }
 
+    private void showInfo(String title, String content) {
+        Alert alert = new Alert(Alert.AlertType.INFORMATION);
+        alert.setTitle(title);
+        alert.setHeaderText(null);
+        alert.setContentText(content);
+        alert.showAndWait();
+    }
+
     private void showError(String title, String header, String content) {
         Alert alert = new Alert(Alert.AlertType.ERROR);
         alert.setTitle(title);
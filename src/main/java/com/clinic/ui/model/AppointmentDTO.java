@@ -27,6 +27,9 @@ public class AppointmentDTO {
     @JsonProperty("createdAt")
     private LocalDateTime createdAt;
 
+    @JsonProperty("updatedAt")
+    private LocalDateTime updatedAt;
+
     @JsonProperty("patientName")
     private String patientName;
 
@@ -56,6 +59,9 @@ public class AppointmentDTO {
     public LocalDateTime getCreatedAt() { return createdAt; }
     public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
 
+    public LocalDateTime getUpdatedAt() { return updatedAt; }
+    public void setUpdatedAt(LocalDateTime updatedAt) { this.updatedAt = updatedAt; }
+
     public String getPatientName() { return patientName; }
     public void setPatientName(String patientName) { this.patientName = patientName; }
 
@@ -0,0 +1,36 @@
+package com.clinic.ui.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class PageDTO<T> {
+    @JsonProperty("items")
+    private List<T> items = new ArrayList<>();
+
+    @JsonProperty("total")
+    private int total;
+
+    @JsonProperty("offset")
+    private int offset;
+
+    @JsonProperty("limit")
+    private int limit;
+
+    public PageDTO() {}
+
+    public List<T> getItems() { return items; }
+    public void setItems(List<T> items) { this.items = items; }
+
+    public int getTotal() { return total; }
+    public void setTotal(int total) { this.total = total; }
+
+    public int getOffset() { return offset; }
+    public void setOffset(int offset) { this.offset = offset; }
+
+    public int getLimit() { return limit; }
+    public void setLimit(int limit) { this.limit = limit; }
+}
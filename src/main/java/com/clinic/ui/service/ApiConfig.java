@@ -0,0 +1,205 @@
+package com.clinic.ui.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.http.HttpClient;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.Properties;
+
+/**
+ * Client connection settings. Each key is resolved from a JVM system property
+ * (e.g. {@code -Dclinic.api.baseUrl=https://api.example.com/api}), then from the
+ * matching environment variable ({@code CLINIC_API_BASEURL}), then from a
+ * {@code clinic.properties} file in the working directory, then the default.
+ */
+public class ApiConfig {
+    public static final String BASE_URL = "clinic.api.baseUrl";
+    public static final String HTTP_VERSION = "clinic.api.httpVersion";
+    public static final String CONNECT_TIMEOUT_MS = "clinic.api.connectTimeoutMs";
+    public static final String REQUEST_TIMEOUT_MS = "clinic.api.requestTimeoutMs";
+    public static final String THREADS = "clinic.api.threads";
+    public static final String WARM_UP = "clinic.api.warmUp";
+    public static final String CACHE_BYTES = "clinic.api.cacheBytes";
+    public static final String EVENTS_URL = "clinic.api.eventsUrl";
+    public static final String EVENTS_IDLE_TIMEOUT_MS = "clinic.api.eventsIdleTimeoutMs";
+    public static final String REFRESH_INTERVAL_MS = "clinic.refresh.intervalMs";
+    public static final String REFRESH_MAX_INTERVAL_MS = "clinic.refresh.maxIntervalMs";
+    public static final String PATIENT_CACHE_SIZE = "clinic.cache.patients";
+    public static final String SNAPSHOT_FILE = "clinic.snapshot.file";
+    public static final String SNAPSHOT_MAX_AGE_MS = "clinic.snapshot.maxAgeMs";
+    public static final String SNAPSHOT_SAVE_INTERVAL_MS = "clinic.snapshot.saveIntervalMs";
+    public static final String SNAPSHOT_PATIENTS = "clinic.snapshot.patients";
+    public static final String OUTBOX_FILE = "clinic.outbox.file";
+    public static final String IMPORT_CONCURRENCY = "clinic.import.concurrency";
+
+    private static final String CONFIG_FILE = "clinic.properties";
+
+    private final Properties fileProperties;
+
+    ApiConfig(Properties fileProperties) {
+        this.fileProperties = fileProperties;
+    }
+
+    public static ApiConfig load() {
+        Properties properties = new Properties();
+        Path file = Path.of(CONFIG_FILE);
+        if (Files.isRegularFile(file)) {
+            try (InputStream in = Files.newInputStream(file)) {
+                properties.load(in);
+            } catch (IOException e) {
+                System.err.println("ERROR reading " + file.toAbsolutePath() + ": " + e.getMessage());
+            }
+        }
+        return new ApiConfig(properties);
+    }
+
+    public String getBaseUrl() {
+        String url = get(BASE_URL, "http://localhost:8080/api");
+        return url.endsWith("/") ? url.substring(0, url.length() - 1) : url;
+    }
+
+    /**
+     * Server-Sent Events endpoint for live appointment updates; empty disables push.
+     */
+    public String getEventsUrl() {
+        return get(EVENTS_URL, getBaseUrl() + "/appointments/events");
+    }
+
+    /**
+     * Silence after which the event stream is reopened; 0 disables the check.
+     */
+    public Duration getEventsIdleTimeout() {
+        return Duration.ofMillis(getLong(EVENTS_IDLE_TIMEOUT_MS, 90_000));
+    }
+
+    /**
+     * HTTP/2 lets concurrent requests share one connection. It is the default for
+     * https endpoints (negotiated via ALPN); plain http stays on HTTP/1.1 unless
+     * explicitly configured, since h2c upgrade is not supported by every proxy.
+     */
+    public HttpClient.Version getHttpVersion() {
+        String configured = get(HTTP_VERSION, null);
+        if (configured == null) {
+            return getBaseUrl().startsWith("https:") ? HttpClient.Version.HTTP_2 : HttpClient.Version.HTTP_1_1;
+        }
+        String normalized = configured.trim().toUpperCase(Locale.ROOT).replace('.', '_').replace("/", "_");
+        return normalized.equals("2") || normalized.equals("HTTP_2") || normalized.equals("H2")
+                ? HttpClient.Version.HTTP_2
+                : HttpClient.Version.HTTP_1_1;
+    }
+
+    public Duration getConnectTimeout() {
+        return Duration.ofMillis(getLong(CONNECT_TIMEOUT_MS, 5_000));
+    }
+
+    public Duration getRequestTimeout() {
+        return Duration.ofMillis(getLong(REQUEST_TIMEOUT_MS, 30_000));
+    }
+
+    /**
+     * Size of the HttpClient executor; 0 (the default) uses virtual threads.
+     */
+    public int getThreads() {
+        return (int) getLong(THREADS, 0);
+    }
+
+    /**
+     * Approximate memory budget of the conditional-GET response cache.
+     */
+    public long getCacheBudgetBytes() {
+        return getLong(CACHE_BYTES, 32L * 1024 * 1024);
+    }
+
+    /**
+     * Maximum number of patients kept by the shared entity cache; 0 disables it.
+     */
+    public int getPatientCacheSize() {
+        return (int) getLong(PATIENT_CACHE_SIZE, 50_000);
+    }
+
+    /**
+     * Local file holding the last-known data for a fast warm start; "none"
+     * disables snapshots.
+     */
+    public String getSnapshotFile() {
+        return get(SNAPSHOT_FILE, Path.of(System.getProperty("user.home"), ".clinic-fe", "snapshot.bin").toString());
+    }
+
+    /**
+     * Journal of writes not yet sent to the API; "none" keeps them in memory only.
+     */
+    public String getOutboxFile() {
+        return get(OUTBOX_FILE, Path.of(System.getProperty("user.home"), ".clinic-fe", "outbox.log").toString());
+    }
+
+    /**
+     * Number of patients the CSV import creates in parallel.
+     */
+    public int getImportConcurrency() {
+        return (int) getLong(IMPORT_CONCURRENCY, 8);
+    }
+
+    /**
+     * Snapshots older than this are ignored on launch.
+     */
+    public Duration getSnapshotMaxAge() {
+        return Duration.ofMillis(getLong(SNAPSHOT_MAX_AGE_MS, 86_400_000));
+    }
+
+    /**
+     * How often the snapshot is rewritten while running; 0 saves only on exit.
+     */
+    public Duration getSnapshotSaveInterval() {
+        return Duration.ofMillis(getLong(SNAPSHOT_SAVE_INTERVAL_MS, 300_000));
+    }
+
+    /**
+     * Whether the snapshot also keeps the patient list. Off by default, since it
+     * is personal data at rest on the workstation.
+     */
+    public boolean isSnapshotPatientsEnabled() {
+        return Boolean.parseBoolean(get(SNAPSHOT_PATIENTS, "false"));
+    }
+
+    /**
+     * Base polling interval for lists without push; 0 disables auto-refresh.
+     */
+    public Duration getRefreshInterval() {
+        return Duration.ofMillis(getLong(REFRESH_INTERVAL_MS, 30_000));
+    }
+
+    public Duration getMaxRefreshInterval() {
+        return Duration.ofMillis(getLong(REFRESH_MAX_INTERVAL_MS, 300_000));
+    }
+
+    public boolean isWarmUpEnabled() {
+        return Boolean.parseBoolean(get(WARM_UP, "true"));
+    }
+
+    String get(String key, String defaultValue) {
+        String value = System.getProperty(key);
+        if (value == null) {
+            value = System.getenv(key.toUpperCase(Locale.ROOT).replace('.', '_'));
+        }
+        if (value == null) {
+            value = fileProperties.getProperty(key);
+        }
+        return value == null || value.isBlank() ? defaultValue : value.trim();
+    }
+
+    long getLong(String key, long defaultValue) {
+        String value = get(key, null);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            System.err.println("ERROR: invalid value for " + key + ": " + value);
+            return defaultValue;
+        }
+    }
+}
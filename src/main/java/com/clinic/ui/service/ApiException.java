@@ -0,0 +1,38 @@
+package com.clinic.ui.service;
+
+import java.io.IOException;
+
+/**
+ * The server answered a request with an error status. Failures that never got
+ * an answer (connection refused, timeout) stay plain {@link IOException}s.
+ */
+public class ApiException extends IOException {
+    private static final long serialVersionUID = 1L;
+
+    private final int status;
+
+    public ApiException(int status, String message) {
+        super(message);
+        this.status = status;
+    }
+
+    public int getStatus() {
+        return status;
+    }
+
+    public boolean isNotFound() {
+        return status == 404;
+    }
+
+    /**
+     * True for a 4xx answer that will not change on retry, i.e. anything but a
+     * timeout or throttling.
+     */
+    public boolean isClientError() {
+        return isClientError(status);
+    }
+
+    static boolean isClientError(int status) {
+        return status >= 400 && status < 500 && status != 408 && status != 429;
+    }
+}
@@ -1,6 +1,20 @@
 package com.clinic.ui.service;
 
+import com.clinic.ui.model.AppointmentDTO;
+import com.clinic.ui.model.PageDTO;
+import com.clinic.ui.model.PatientDTO;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.databind.util.RawValue;
+
+import java.io.FilterInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.net.ConnectException;
 import java.net.URI;
 import java.net.URLEncoder;
@@ -8,13 +22,38 @@ import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
 import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
 
 public class ApiService {
-    private static final String BASE_URL = "http://localhost:8080/api";
+    private static final ApiConfig config = ApiConfig.load();
+    private static final String BASE_URL = config.getBaseUrl();
+    private static final String IDEMPOTENCY_KEY = "Idempotency-Key";
+    private static final Duration REQUEST_TIMEOUT = config.getRequestTimeout();
     private static final HttpClient httpClient = HttpClient.newBuilder()
-            .version(HttpClient.Version.HTTP_1_1)
+            .version(config.getHttpVersion())
+            .connectTimeout(config.getConnectTimeout())
+            .executor(config.getThreads() > 0
+                    ? Executors.newFixedThreadPool(config.getThreads())
+                    : Executors.newVirtualThreadPerTaskExecutor())
             .build();
-
+    private static final ExecutorService streamExecutor = Executors.newVirtualThreadPerTaskExecutor();
+    private static final int FIRST_CHUNK_SIZE = 32;
+    private static final int MAX_CHUNK_SIZE = 1024;
+    private static final ResponseCache responseCache = new ResponseCache(config.getCacheBudgetBytes());
+    private static final SingleFlight singleFlight = new SingleFlight();
+    private static volatile boolean batchSupported = true;
 
     public static String getPatients() throws IOException, InterruptedException {
         return sendGetRequest(BASE_URL + "/patients");
@@ -88,80 +127,691 @@ public class ApiService {
         return sendPostRequest(BASE_URL + "/medical-records", jsonBody);
     }
 
-    private static String sendGetRequest(String url) throws IOException, InterruptedException {
-        HttpRequest request = HttpRequest.newBuilder()
-                .uri(URI.create(url))
-                .GET()
-                .header("Accept", "application/json")
-                .build();
+    // ==================== Async APIs ====================
+    // Non-blocking variants built on HttpClient.sendAsync. Cancelling a returned
+    // future aborts the underlying HTTP exchange. Callers that touch the UI must
+    // continue on the FX thread, e.g. whenCompleteAsync(..., Platform::runLater).
+
+    public static CompletableFuture<String> getPatientsAsync() {
+        return sendGetRequestAsync(BASE_URL + "/patients");
+    }
+
+    public static CompletableFuture<String> searchPatientsAsync(String name) {
+        String encodedName = URLEncoder.encode(name, StandardCharsets.UTF_8);
+        return sendGetRequestAsync(BASE_URL + "/patients/search?name=" + encodedName);
+    }
+
+    public static CompletableFuture<String> getPatientByIdAsync(Integer id) {
+        return sendGetRequestAsync(BASE_URL + "/patients/" + id);
+    }
 
+    public static CompletableFuture<String> getPatientBySocialIdAsync(String socialId) {
+        String encodedSocialId = URLEncoder.encode(socialId, StandardCharsets.UTF_8);
+        return sendGetRequestAsync(BASE_URL + "/patients/social/" + encodedSocialId);
+    }
+
+    public static CompletableFuture<String> createPatientAsync(String jsonBody) {
+        return sendPostRequestAsync(BASE_URL + "/patients", jsonBody);
+    }
+
+    public static CompletableFuture<String> updatePatientAsync(Integer id, String jsonBody) {
+        return sendPutRequestAsync(BASE_URL + "/patients/" + id, jsonBody);
+    }
+
+    public static CompletableFuture<Void> deletePatientAsync(Integer id) {
+        return sendDeleteRequestAsync(BASE_URL + "/patients/" + id);
+    }
+
+    public static CompletableFuture<String> getDoctorsAsync() {
+        return sendGetRequestAsync(BASE_URL + "/doctors");
+    }
+
+    public static CompletableFuture<String> getDoctorByIdAsync(Integer id) {
+        return sendGetRequestAsync(BASE_URL + "/doctors/" + id);
+    }
+
+    public static CompletableFuture<String> getAppointmentsAsync() {
+        return sendGetRequestAsync(BASE_URL + "/appointments");
+    }
+
+    public static CompletableFuture<String> getAppointmentByIdAsync(Integer id) {
+        return sendGetRequestAsync(BASE_URL + "/appointments/" + id);
+    }
+
+    public static CompletableFuture<String> createAppointmentAsync(String jsonBody) {
+        return sendPostRequestAsync(BASE_URL + "/appointments", jsonBody);
+    }
+
+    public static CompletableFuture<String> completeAppointmentAsync(Integer id) {
+        return sendPutRequestAsync(BASE_URL + "/appointments/" + id + "/complete", "");
+    }
+
+    public static CompletableFuture<String> getTodayAppointmentsAsync() {
+        return sendGetRequestAsync(BASE_URL + "/appointments/today");
+    }
+
+    public static CompletableFuture<String> getMedicalRecordByAppointmentIdAsync(Integer appointmentId) {
+        return sendGetRequestAsync(BASE_URL + "/medical-records/appointment/" + appointmentId);
+    }
+
+    public static CompletableFuture<String> createMedicalRecordAsync(String jsonBody) {
+        return sendPostRequestAsync(BASE_URL + "/medical-records", jsonBody);
+    }
+
+    // ==================== Delta sync APIs ====================
+
+    /**
+     * Appointments created or updated after {@code since}, optionally restricted
+     * to today's schedule.
+     */
+    public static CompletableFuture<List<AppointmentDTO>> getAppointmentChangesAsync(boolean todayOnly, LocalDateTime since) {
+        String path = todayOnly ? "/appointments/today/changes" : "/appointments/changes";
+        String encodedSince = URLEncoder.encode(since.toString(), StandardCharsets.UTF_8);
+        return sendGetRequestAsync(BASE_URL + path + "?since=" + encodedSince)
+                .thenApply(json -> JsonCodec.readList(json, AppointmentDTO.class));
+    }
+
+    // ==================== Batch APIs ====================
+
+    /**
+     * Sends several writes in one POST /batch round trip and returns one future
+     * per operation, completing with that operation's response body or failing
+     * the way the single call would. When the backend has no batch endpoint the
+     * operations go out as individual requests instead, all at once except
+     * where one waits for the id of another. An operation's idempotency key is
+     * sent as {@code idempotencyKey} in the batch, or as the Idempotency-Key
+     * header of the individual request.
+     */
+    public static List<CompletableFuture<String>> sendBatchAsync(List<BatchOperation> operations) {
+        List<CompletableFuture<String>> results = new ArrayList<>(operations.size());
+        for (int i = 0; i < operations.size(); i++) {
+            for (int bound : operations.get(i).getBindings().values()) {
+                if (bound < 0 || bound >= i) {
+                    throw new IllegalArgumentException("Operation " + i + " is bound to operation " + bound);
+                }
+            }
+            results.add(new CompletableFuture<>());
+        }
+        if (!batchSupported || operations.size() < 2) {
+            sendPipelined(operations, results);
+            return results;
+        }
+
+        ObjectNode request = JsonCodec.mapper().createObjectNode();
+        ArrayNode list = request.putArray("operations");
+        for (BatchOperation operation : operations) {
+            ObjectNode item = list.addObject().put("method", operation.getMethod()).put("path", operation.getPath());
+            if (operation.getIdempotencyKey() != null) {
+                item.put("idempotencyKey", operation.getIdempotencyKey());
+            }
+            item.putRawValue("body", new RawValue(operation.getBody()));
+            if (!operation.getBindings().isEmpty()) {
+                ObjectNode bind = item.putObject("bind");
+                operation.getBindings().forEach(bind::put);
+            }
+        }
+        sendAsync(buildPostRequest(BASE_URL + "/batch", request.toString()), response -> response)
+                .whenComplete((response, error) -> {
+                    if (error != null) {
+                        results.forEach(result -> result.completeExceptionally(unwrap(error)));
+                    } else if (response.statusCode() == 404 || response.statusCode() == 405
+                            || response.statusCode() == 501) {
+                        System.out.println("DEBUG: Batch endpoint unavailable, sending requests individually");
+                        batchSupported = false;
+                        sendPipelined(operations, results);
+                    } else if (ApiException.isClientError(response.statusCode())) {
+                        // The envelope was refused (too large, malformed...), which says
+                        // nothing about the operations; let each get its own answer.
+                        System.out.println("DEBUG: Batch of " + operations.size() + " refused with status "
+                                + response.statusCode() + ", sending requests individually");
+                        sendPipelined(operations, results);
+                    } else {
+                        completeBatch(response, results);
+                    }
+                });
+        return results;
+    }
+
+    private static void completeBatch(HttpResponse<String> response, List<CompletableFuture<String>> results) {
+        JsonNode items;
         try {
-            HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+            items = JsonCodec.mapper().readTree(checkPostResponse(response)).path("results");
+            if (items.size() != results.size()) {
+                throw new IOException("Batch returned " + items.size() + " results for " + results.size() + " operations");
+            }
+        } catch (IOException e) {
+            IOException failure = batchFailure(e.getMessage(), e);
+            results.forEach(result -> result.completeExceptionally(failure));
+            return;
+        }
+        for (int i = 0; i < results.size(); i++) {
+            JsonNode item = items.get(i);
+            int status = item.path("status").asInt();
+            String body = item.has("body") ? item.get("body").toString() : "";
+            if (status == 200 || status == 201) {
+                results.get(i).complete(body);
+            } else {
+                results.get(i).completeExceptionally(
+                        new ApiException(status, "Request failed. Status: " + status + ", Body: " + body));
+            }
+        }
+    }
+
+    /**
+     * A failure of the batch request as a whole. It is deliberately not an
+     * {@link ApiException}, so no operation is taken as rejected by the server.
+     */
+    private static IOException batchFailure(String message, Throwable cause) {
+        return new IOException("Batch request failed: " + message, cause);
+    }
 
-            if (response.statusCode() == 404) {
-                throw new IOException("Resource not found: " + url);
-            } else if (response.statusCode() != 200) {
-                throw new IOException("Request failed. Status: " + response.statusCode() + ", Body: " + response.body());
+    private static void sendPipelined(List<BatchOperation> operations, List<CompletableFuture<String>> results) {
+        for (int i = 0; i < operations.size(); i++) {
+            BatchOperation operation = operations.get(i);
+            CompletableFuture<String> request;
+            if (operation.getBindings().isEmpty()) {
+                request = sendOperationAsync(operation, operation.getBody());
+            } else {
+                CompletableFuture<?>[] dependencies = operation.getBindings().values().stream()
+                        .map(results::get).toArray(CompletableFuture[]::new);
+                request = CompletableFuture.allOf(dependencies)
+                        .thenCompose(ignored -> sendOperationAsync(operation, bindIds(operation, results)));
             }
+            CompletableFuture<String> result = results.get(i);
+            request.whenComplete((body, error) -> {
+                if (error != null) {
+                    result.completeExceptionally(unwrap(error));
+                } else {
+                    result.complete(body);
+                }
+            });
+        }
+    }
 
-            return response.body();
-        } catch (ConnectException e) {
-            throw new IOException("Cannot connect to REST API. Is the server running?", e);
+    private static String bindIds(BatchOperation operation, List<CompletableFuture<String>> results) {
+        try {
+            ObjectNode body = (ObjectNode) JsonCodec.mapper().readTree(operation.getBody());
+            for (Map.Entry<String, Integer> binding : operation.getBindings().entrySet()) {
+                body.set(binding.getKey(), JsonCodec.mapper().readTree(results.get(binding.getValue()).join()).get("id"));
+            }
+            return body.toString();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
         }
     }
 
-    private static String sendPostRequest(String url, String jsonBody) throws IOException, InterruptedException {
+    private static CompletableFuture<String> sendOperationAsync(BatchOperation operation, String body) {
+        String url = BASE_URL + operation.getPath();
+        String key = operation.getIdempotencyKey();
+        return operation.getMethod().equals("PUT")
+                ? sendAsync(withIdempotencyKey(buildPutRequest(url, body), key), ApiService::checkPutResponse)
+                : sendAsync(withIdempotencyKey(buildPostRequest(url, body), key), ApiService::checkPostResponse);
+    }
+
+    // ==================== Push APIs ====================
+
+    /**
+     * Opens the live appointment event stream, or returns null when no events
+     * endpoint is configured.
+     */
+    public static AppointmentEventStream openAppointmentEvents(AppointmentEventStream.Listener listener) {
+        String eventsUrl = config.getEventsUrl();
+        if (eventsUrl == null || eventsUrl.isBlank() || eventsUrl.equalsIgnoreCase("none")) {
+            return null;
+        }
+        AppointmentEventStream stream = new AppointmentEventStream(URI.create(eventsUrl), httpClient, listener,
+                config.getEventsIdleTimeout());
+        stream.start();
+        return stream;
+    }
+
+    // ==================== Paged APIs ====================
+
+    public static CompletableFuture<PageDTO<AppointmentDTO>> getAppointmentsPage(int offset, int limit) {
+        return getPage(BASE_URL + "/appointments/page?offset=" + offset + "&limit=" + limit, AppointmentDTO.class);
+    }
+
+    public static CompletableFuture<PageDTO<PatientDTO>> getPatientsPage(int offset, int limit) {
+        return getPage(BASE_URL + "/patients/page?offset=" + offset + "&limit=" + limit, PatientDTO.class);
+    }
+
+    // ==================== Streaming list APIs ====================
+    // Parse the response body element by element straight from the socket and
+    // hand DTOs to the caller in growing chunks, so the first rows can be shown
+    // before the download finishes. The future completes with the row count.
+
+    public static CompletableFuture<Integer> streamAppointments(Consumer<List<AppointmentDTO>> onChunk) {
+        return streamList(BASE_URL + "/appointments", AppointmentDTO.class, onChunk);
+    }
+
+    /**
+     * Appointments scheduled from {@code from} to {@code to}, both inclusive. A
+     * backend that ignores the bounds sends every appointment, so callers still
+     * filter by date.
+     */
+    public static CompletableFuture<Integer> streamAppointmentsBetween(LocalDate from, LocalDate to,
+                                                                     Consumer<List<AppointmentDTO>> onChunk) {
+        return streamList(BASE_URL + "/appointments?from=" + from + "&to=" + to, AppointmentDTO.class, onChunk);
+    }
+
+    public static CompletableFuture<Integer> streamTodayAppointments(Consumer<List<AppointmentDTO>> onChunk) {
+        return streamList(BASE_URL + "/appointments/today", AppointmentDTO.class, onChunk);
+    }
+
+    public static CompletableFuture<Integer> streamPatients(Consumer<List<PatientDTO>> onChunk) {
+        return streamList(BASE_URL + "/patients", PatientDTO.class, onChunk);
+    }
+
+    /**
+     * Opens {@code GET <baseUrl><path>} as a raw body stream for callers that
+     * parse the response themselves, e.g. exports. Bypasses the response cache;
+     * error statuses fail the future like the other GETs. The caller closes the
+     * stream.
+     */
+    public static CompletableFuture<InputStream> openBodyStreamAsync(String path) {
+        String url = BASE_URL + path;
+        CompletableFuture<HttpResponse<InputStream>> exchange =
+                httpClient.sendAsync(buildGetRequest(url, null), HttpResponse.BodyHandlers.ofInputStream());
+        CompletableFuture<InputStream> result = exchange.handle((response, error) -> {
+            if (error != null) {
+                throw new CompletionException(translateError(error));
+            }
+            if (response.statusCode() == 200) {
+                return response.body();
+            }
+            try (InputStream body = response.body()) {
+                if (response.statusCode() == 404) {
+                    throw new ApiException(404, "Resource not found: " + url);
+                }
+                String text = new String(body.readAllBytes(), StandardCharsets.UTF_8);
+                throw new ApiException(response.statusCode(), "Request failed. Status: " + response.statusCode() + ", Body: " + text);
+            } catch (IOException e) {
+                throw new CompletionException(e);
+            }
+        });
+        result.whenComplete((body, error) -> {
+            if (result.isCancelled()) {
+                exchange.cancel(true);
+            }
+        });
+        return result;
+    }
+
+    public static ApiConfig getConfig() {
+        return config;
+    }
+
+    public static ResponseCache getResponseCache() {
+        return responseCache;
+    }
+
+    public static SingleFlight getSingleFlight() {
+        return singleFlight;
+    }
+
+    /**
+     * Opens the connection to the API host (TCP, TLS and the HTTP/2 handshake)
+     * ahead of the first user action. The response itself is ignored.
+     */
+    public static CompletableFuture<Void> warmUp() {
+        if (!config.isWarmUpEnabled()) {
+            return CompletableFuture.completedFuture(null);
+        }
         HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create(BASE_URL))
+                .method("HEAD", HttpRequest.BodyPublishers.noBody())
+                .timeout(REQUEST_TIMEOUT)
+                .build();
+        long start = System.nanoTime();
+        return httpClient.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                .handle((response, error) -> {
+                    long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+                    if (error != null) {
+                        System.err.println("WARN: API warm-up failed after " + elapsedMs + " ms: "
+                                + unwrap(error).getMessage());
+                    } else {
+                        System.out.println("DEBUG: API connection warmed up in " + elapsedMs + " ms ("
+                                + response.version() + ")");
+                    }
+                    return null;
+                });
+    }
+
+    public static Throwable unwrap(Throwable error) {
+        while ((error instanceof CompletionException || error instanceof ExecutionException
+                || error instanceof UncheckedIOException) && error.getCause() != null) {
+            error = error.getCause();
+        }
+        return error;
+    }
+
+    public static boolean isCancellation(Throwable error) {
+        return unwrap(error) instanceof CancellationException;
+    }
+
+    public static boolean isNotFound(Throwable error) {
+        return unwrap(error) instanceof ApiException failure && failure.isNotFound();
+    }
+
+    private static HttpRequest buildGetRequest(String url, ResponseCache.Entry cached) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder()
+                .uri(URI.create(url))
+                .GET()
+                .timeout(REQUEST_TIMEOUT)
+                .header("Accept", "application/json");
+        return responseCache.addValidators(builder, cached).build();
+    }
+
+    private static HttpRequest buildPostRequest(String url, String jsonBody) {
+        return HttpRequest.newBuilder()
                 .uri(URI.create(url))
                 .POST(HttpRequest.BodyPublishers.ofString(jsonBody))
+                .timeout(REQUEST_TIMEOUT)
                 .header("Content-Type", "application/json")
                 .header("Accept", "application/json")
                 .build();
-
-        HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
-
-        if (response.statusCode() != 201 && response.statusCode() != 200) {
-            throw new IOException("Request failed. Status: " + response.statusCode() + ", Body: " + response.body());
-        }
-
-        return response.body();
     }
 
-    private static String sendPutRequest(String url, String jsonBody) throws IOException, InterruptedException {
+    private static HttpRequest buildPutRequest(String url, String jsonBody) {
         HttpRequest.BodyPublisher body = jsonBody.isEmpty() ?
                 HttpRequest.BodyPublishers.noBody() :
                 HttpRequest.BodyPublishers.ofString(jsonBody);
 
-        HttpRequest request = HttpRequest.newBuilder()
+        return HttpRequest.newBuilder()
                 .uri(URI.create(url))
                 .PUT(body)
+                .timeout(REQUEST_TIMEOUT)
                 .header("Content-Type", "application/json")
                 .header("Accept", "application/json")
                 .build();
+    }
 
-        HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+    private static HttpRequest withIdempotencyKey(HttpRequest request, String key) {
+        if (key == null) {
+            return request;
+        }
+        return HttpRequest.newBuilder(request, (name, value) -> true).header(IDEMPOTENCY_KEY, key).build();
+    }
 
+    private static HttpRequest buildDeleteRequest(String url) {
+        return HttpRequest.newBuilder()
+                .uri(URI.create(url))
+                .DELETE()
+                .timeout(REQUEST_TIMEOUT)
+                .build();
+    }
+
+    private static String checkGetResponse(String url, HttpResponse<String> response) throws IOException {
         if (response.statusCode() == 404) {
-            throw new IOException("Resource not found");
+            throw new ApiException(404, "Resource not found: " + url);
         } else if (response.statusCode() != 200) {
-            throw new IOException("Request failed. Status: " + response.statusCode());
+            throw new ApiException(response.statusCode(), "Request failed. Status: " + response.statusCode() + ", Body: " + response.body());
         }
-
         return response.body();
     }
 
-    private static void sendDeleteRequest(String url) throws IOException, InterruptedException {
-        HttpRequest request = HttpRequest.newBuilder()
-                .uri(URI.create(url))
-                .DELETE()
-                .build();
+    private static String checkPostResponse(HttpResponse<String> response) throws IOException {
+        if (response.statusCode() != 201 && response.statusCode() != 200) {
+            throw new ApiException(response.statusCode(), "Request failed. Status: " + response.statusCode() + ", Body: " + response.body());
+        }
+        return response.body();
+    }
 
-        HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+    private static String checkPutResponse(HttpResponse<String> response) throws IOException {
+        if (response.statusCode() == 404) {
+            throw new ApiException(404, "Resource not found");
+        } else if (response.statusCode() != 200) {
+            throw new ApiException(response.statusCode(), "Request failed. Status: " + response.statusCode());
+        }
+        return response.body();
+    }
 
+    private static Void checkDeleteResponse(HttpResponse<String> response) throws IOException {
         if (response.statusCode() == 404) {
-            throw new IOException("Resource not found");
+            throw new ApiException(404, "Resource not found");
         } else if (response.statusCode() != 204) {
-            throw new IOException("Request failed. Status: " + response.statusCode());
+            throw new ApiException(response.statusCode(), "Request failed. Status: " + response.statusCode());
+        }
+        return null;
+    }
+
+    private static String sendGetRequest(String url) throws IOException, InterruptedException {
+        ResponseCache.Entry cached = cachedBody(url);
+        try {
+            return readBody(url, cached, httpClient.send(buildGetRequest(url, cached), HttpResponse.BodyHandlers.ofString()));
+        } catch (ConnectException e) {
+            throw new IOException("Cannot connect to REST API. Is the server running?", e);
+        }
+    }
+
+    private static String sendPostRequest(String url, String jsonBody) throws IOException, InterruptedException {
+        return checkPostResponse(httpClient.send(buildPostRequest(url, jsonBody), HttpResponse.BodyHandlers.ofString()));
+    }
+
+    private static String sendPutRequest(String url, String jsonBody) throws IOException, InterruptedException {
+        return checkPutResponse(httpClient.send(buildPutRequest(url, jsonBody), HttpResponse.BodyHandlers.ofString()));
+    }
+
+    private static void sendDeleteRequest(String url) throws IOException, InterruptedException {
+        checkDeleteResponse(httpClient.send(buildDeleteRequest(url), HttpResponse.BodyHandlers.ofString()));
+    }
+
+    private static CompletableFuture<String> sendGetRequestAsync(String url) {
+        return singleFlight.execute(url, () -> {
+            ResponseCache.Entry cached = cachedBody(url);
+            return sendAsync(buildGetRequest(url, cached), response -> readBody(url, cached, response));
+        });
+    }
+
+    private static CompletableFuture<String> sendPostRequestAsync(String url, String jsonBody) {
+        return sendAsync(buildPostRequest(url, jsonBody), ApiService::checkPostResponse);
+    }
+
+    private static CompletableFuture<String> sendPutRequestAsync(String url, String jsonBody) {
+        return sendAsync(buildPutRequest(url, jsonBody), ApiService::checkPutResponse);
+    }
+
+    private static CompletableFuture<Void> sendDeleteRequestAsync(String url) {
+        return sendAsync(buildDeleteRequest(url), ApiService::checkDeleteResponse);
+    }
+
+    private static <R> CompletableFuture<R> sendAsync(HttpRequest request, ResponseHandler<String, R> handler) {
+        CompletableFuture<HttpResponse<String>> exchange =
+                httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofString());
+        CompletableFuture<R> result = exchange.handle((response, error) -> {
+            if (error != null) {
+                throw new CompletionException(translateError(error));
+            }
+            try {
+                return handler.handle(response);
+            } catch (IOException e) {
+                throw new CompletionException(e);
+            }
+        });
+        result.whenComplete((value, error) -> {
+            if (result.isCancelled()) {
+                exchange.cancel(true);
+            }
+        });
+        return result;
+    }
+
+    private static ResponseCache.Entry cachedBody(String url) {
+        ResponseCache.Entry cached = responseCache.get(url);
+        return cached != null && cached.getBody() != null ? cached : null;
+    }
+
+    private static ResponseCache.Entry cachedParsed(String url) {
+        ResponseCache.Entry cached = responseCache.get(url);
+        return cached != null && cached.getParsed() != null ? cached : null;
+    }
+
+    private static String readBody(String url, ResponseCache.Entry cached, HttpResponse<String> response) throws IOException {
+        if (response.statusCode() == 304 && cached != null) {
+            responseCache.recordHit();
+            return cached.getBody();
+        }
+        String body = checkGetResponse(url, response);
+        responseCache.recordMiss();
+        responseCache.storeBody(url, response.headers(), body);
+        return body;
+    }
+
+    private static <T> CompletableFuture<PageDTO<T>> getPage(String url, Class<T> type) {
+        ObjectReader pageReader = JsonCodec.readerForPageOf(type);
+        return singleFlight.execute("page " + url, () -> fetchPage(url, pageReader));
+    }
+
+    private static <T> CompletableFuture<PageDTO<T>> fetchPage(String url, ObjectReader pageReader) {
+        ResponseCache.Entry cached = cachedParsed(url);
+        return sendAsync(buildGetRequest(url, cached), response -> {
+            if (response.statusCode() == 304 && cached != null) {
+                responseCache.recordHit();
+                return cached.<PageDTO<T>>getParsed();
+            }
+            String body = checkGetResponse(url, response);
+            PageDTO<T> page = pageReader.readValue(body);
+            responseCache.recordMiss();
+            responseCache.storeParsed(url, response.headers(), page, (long) body.length() * 2);
+            return page;
+        });
+    }
+
+    private static <T> CompletableFuture<Integer> streamList(String url, Class<T> type, Consumer<List<T>> onChunk) {
+        CompletableFuture<Integer> result = new CompletableFuture<>();
+        ResponseCache.Entry cached = cachedParsed(url);
+        CompletableFuture<HttpResponse<InputStream>> exchange =
+                httpClient.sendAsync(buildGetRequest(url, cached), HttpResponse.BodyHandlers.ofInputStream());
+        exchange.whenCompleteAsync((response, error) -> {
+            if (error != null) {
+                result.completeExceptionally(translateError(error));
+                return;
+            }
+            try (CountingInputStream body = new CountingInputStream(response.body())) {
+                if (response.statusCode() == 304 && cached != null) {
+                    responseCache.recordHit();
+                    List<T> items = cached.getParsed();
+                    emitChunks(items, onChunk);
+                    result.complete(items.size());
+                    return;
+                } else if (response.statusCode() == 404) {
+                    throw new ApiException(404, "Resource not found: " + url);
+                } else if (response.statusCode() != 200) {
+                    String text = new String(body.readAllBytes(), StandardCharsets.UTF_8);
+                    throw new ApiException(response.statusCode(), "Request failed. Status: " + response.statusCode() + ", Body: " + text);
+                }
+                boolean cacheable = response.headers().firstValue("ETag").isPresent()
+                        || response.headers().firstValue("Last-Modified").isPresent();
+                long budget = config.getCacheBudgetBytes();
+                List<T> retained = new ArrayList<>();
+                boolean[] retaining = {cacheable};
+                int count = parseArray(url, body, type, chunk -> {
+                    if (retaining[0] && body.getCount() * 2 > budget) {
+                        retaining[0] = false;
+                        retained.clear();
+                    }
+                    if (retaining[0]) {
+                        retained.addAll(chunk);
+                    }
+                    onChunk.accept(chunk);
+                }, result);
+                responseCache.recordMiss();
+                if (retaining[0] && !result.isDone()) {
+                    responseCache.storeParsed(url, response.headers(), retained, body.getCount() * 2);
+                }
+                result.complete(count);
+            } catch (Throwable e) {
+                result.completeExceptionally(e);
+            }
+        }, streamExecutor);
+        result.whenComplete((value, error) -> {
+            if (result.isCancelled()) {
+                exchange.cancel(true);
+            }
+        });
+        return result;
+    }
+
+    private static <T> int parseArray(String url, InputStream body, Class<T> type,
+                                      Consumer<List<T>> onChunk, CompletableFuture<?> owner) throws IOException {
+        ObjectReader reader = JsonCodec.readerFor(type);
+        try (JsonParser parser = JsonCodec.factory().createParser(body)) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new IOException("Expected a JSON array from " + url);
+            }
+
+            int count = 0;
+            int chunkSize = FIRST_CHUNK_SIZE;
+            List<T> chunk = new ArrayList<>(chunkSize);
+            while (parser.nextToken() == JsonToken.START_OBJECT) {
+                if (owner.isDone()) {
+                    return count;
+                }
+                chunk.add(reader.readValue(parser));
+                count++;
+                if (chunk.size() >= chunkSize) {
+                    onChunk.accept(chunk);
+                    chunkSize = Math.min(chunkSize * 2, MAX_CHUNK_SIZE);
+                    chunk = new ArrayList<>(chunkSize);
+                }
+            }
+            if (!chunk.isEmpty()) {
+                onChunk.accept(chunk);
+            }
+            return count;
         }
     }
+
+    private static <T> void emitChunks(List<T> items, Consumer<List<T>> onChunk) {
+        int chunkSize = FIRST_CHUNK_SIZE;
+        for (int from = 0; from < items.size(); ) {
+            int to = Math.min(from + chunkSize, items.size());
+            onChunk.accept(new ArrayList<>(items.subList(from, to)));
+            from = to;
+            chunkSize = Math.min(chunkSize * 2, MAX_CHUNK_SIZE);
+        }
+    }
+
+    private static Throwable translateError(Throwable error) {
+        Throwable cause = unwrap(error);
+        if (cause instanceof ConnectException) {
+            return new IOException("Cannot connect to REST API. Is the server running?", cause);
+        }
+        return cause;
+    }
+
+    private static final class CountingInputStream extends FilterInputStream {
+        private long count;
+
+        private CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                count++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int n = super.read(buffer, offset, length);
+            if (n > 0) {
+                count += n;
+            }
+            return n;
+        }
+
+        private long getCount() {
+            return count;
+        }
+    }
+
+    @FunctionalInterface
+    private interface ResponseHandler<T, R> {
+        R handle(HttpResponse<T> response) throws IOException;
+    }
 }
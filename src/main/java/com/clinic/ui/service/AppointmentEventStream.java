@@ -0,0 +1,291 @@
+package com.clinic.ui.service;
+
+import com.clinic.ui.model.AppointmentDTO;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+/**
+ * Server-Sent Events client for appointment changes. It keeps one long-lived
+ * GET open, dispatches every {@code appointment.*} event to the listener and
+ * reconnects with exponential backoff, sending {@code Last-Event-ID} so the
+ * server can replay what was missed. A connection that delivers nothing, not
+ * even a comment line, for longer than the idle timeout is treated as dead
+ * (a proxy or NAT may drop it without closing the socket) and reopened. The
+ * endpoint and HttpClient are passed in, so the stream can be pointed at a
+ * local stand-in server.
+ */
+public class AppointmentEventStream {
+
+    public enum EventType {
+        CREATED, UPDATED, COMPLETED, CANCELLED;
+
+        static EventType fromName(String name) {
+            if (name == null) {
+                return UPDATED;
+            }
+            String suffix = name.substring(name.lastIndexOf('.') + 1).toUpperCase(Locale.ROOT);
+            for (EventType type : values()) {
+                if (type.name().equals(suffix)) {
+                    return type;
+                }
+            }
+            return UPDATED;
+        }
+    }
+
+    public static final class Event {
+        private final String id;
+        private final EventType type;
+        private final AppointmentDTO appointment;
+
+        Event(String id, EventType type, AppointmentDTO appointment) {
+            this.id = id;
+            this.type = type;
+            this.appointment = appointment;
+        }
+
+        public String getId() { return id; }
+        public EventType getType() { return type; }
+        public AppointmentDTO getAppointment() { return appointment; }
+    }
+
+    public interface Listener {
+        void onEvent(Event event);
+        default void onConnected(boolean reconnected) {}
+        default void onDisconnected(Throwable error) {}
+
+        /**
+         * The server has no event stream; unlike {@link #onDisconnected} nothing
+         * is retried afterwards.
+         */
+        default void onUnavailable() {}
+    }
+
+    private static final long INITIAL_RETRY_MS = 1_000;
+    private static final long MAX_RETRY_MS = 60_000;
+
+    private final URI endpoint;
+    private final HttpClient httpClient;
+    private final Listener listener;
+    private final long idleTimeoutMs;
+    private final ExecutorService reader = Executors.newVirtualThreadPerTaskExecutor();
+    private final ScheduledExecutorService reconnector = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "appointment-events-reconnect");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private volatile boolean closed;
+    private volatile String lastEventId;
+    private volatile long retryMs = INITIAL_RETRY_MS;
+    private volatile long serverRetryMs;
+    private volatile boolean everConnected;
+    private volatile CompletableFuture<?> connection;
+    private volatile long lastActivity;
+
+    /**
+     * @param idleTimeout how long the connection may stay silent before it is
+     *                    reopened; zero disables the check
+     */
+    public AppointmentEventStream(URI endpoint, HttpClient httpClient, Listener listener, Duration idleTimeout) {
+        this.endpoint = endpoint;
+        this.httpClient = httpClient;
+        this.listener = listener;
+        this.idleTimeoutMs = idleTimeout.toMillis();
+    }
+
+    public void start() {
+        closed = false;
+        connect();
+    }
+
+    public void close() {
+        closed = true;
+        CompletableFuture<?> current = connection;
+        if (current != null) {
+            current.cancel(true);
+        }
+        reconnector.shutdownNow();
+        reader.shutdownNow();
+    }
+
+    public String getLastEventId() {
+        return lastEventId;
+    }
+
+    private void connect() {
+        if (closed) {
+            return;
+        }
+        HttpRequest.Builder builder = HttpRequest.newBuilder()
+                .uri(endpoint)
+                .GET()
+                .header("Accept", "text/event-stream")
+                .header("Cache-Control", "no-cache");
+        if (lastEventId != null) {
+            builder.header("Last-Event-ID", lastEventId);
+        }
+
+        CompletableFuture<HttpResponse<Stream<String>>> exchange =
+                httpClient.sendAsync(builder.build(), HttpResponse.BodyHandlers.ofLines());
+        connection = exchange;
+        exchange.whenCompleteAsync((response, error) -> {
+            if (error != null) {
+                disconnected(ApiService.unwrap(error));
+                return;
+            }
+            if (response.statusCode() == 404) {
+                response.body().close();
+                System.out.println("DEBUG: Event stream not available at " + endpoint + ", live updates disabled");
+                listener.onUnavailable();
+                return;
+            }
+            if (response.statusCode() != 200) {
+                response.body().close();
+                disconnected(new ApiException(response.statusCode(), "Event stream failed. Status: " + response.statusCode()));
+                return;
+            }
+
+            listener.onConnected(everConnected);
+            everConnected = true;
+            retryMs = INITIAL_RETRY_MS;
+            lastActivity = System.nanoTime();
+            AtomicBoolean idle = new AtomicBoolean();
+            ScheduledFuture<?> watchdog = watch(response.body(), Thread.currentThread(), idle);
+            try (Stream<String> lines = response.body()) {
+                EventParser parser = new EventParser();
+                lines.takeWhile(line -> !closed).forEach(line -> {
+                    lastActivity = 0;
+                    parser.accept(line);
+                    lastActivity = System.nanoTime();
+                });
+                disconnected(idle.get() ? new IOException("No event for " + idleTimeoutMs + " ms") : null);
+            } catch (RuntimeException e) {
+                disconnected(idle.get() ? new IOException("No event for " + idleTimeoutMs + " ms") : ApiService.unwrap(e));
+            } finally {
+                if (watchdog != null) {
+                    watchdog.cancel(false);
+                }
+                Thread.interrupted();
+            }
+        }, reader);
+    }
+
+    /**
+     * Closes the body and interrupts the blocked reader once the connection has
+     * been silent for the idle timeout, which ends the read loop. Time spent
+     * handling a line does not count; {@code lastActivity} is 0 meanwhile.
+     */
+    private ScheduledFuture<?> watch(Stream<String> body, Thread readingThread, AtomicBoolean idle) {
+        if (idleTimeoutMs <= 0) {
+            return null;
+        }
+        long period = Math.max(idleTimeoutMs / 4, 1);
+        try {
+            return reconnector.scheduleWithFixedDelay(() -> {
+                long since = lastActivity;
+                if (since != 0 && System.nanoTime() - since > TimeUnit.MILLISECONDS.toNanos(idleTimeoutMs)
+                        && idle.compareAndSet(false, true)) {
+                    System.out.println("DEBUG: Event stream idle for " + idleTimeoutMs + " ms, reopening");
+                    body.close();
+                    readingThread.interrupt();
+                }
+            }, period, period, TimeUnit.MILLISECONDS);
+        } catch (RuntimeException e) {
+            // Shut down concurrently by close().
+            return null;
+        }
+    }
+
+    private void disconnected(Throwable error) {
+        if (closed) {
+            return;
+        }
+        listener.onDisconnected(error);
+        long delay = serverRetryMs > 0 ? serverRetryMs : retryMs;
+        retryMs = Math.min(retryMs * 2, MAX_RETRY_MS);
+        System.out.println("DEBUG: Event stream disconnected, reconnecting in " + delay + " ms"
+                + (error != null ? " (" + error.getMessage() + ")" : ""));
+        try {
+            reconnector.schedule(this::connect, delay, TimeUnit.MILLISECONDS);
+        } catch (RuntimeException e) {
+            // Shut down concurrently by close().
+        }
+    }
+
+    private final class EventParser {
+        private String eventName;
+        private String eventId;
+        private final StringBuilder data = new StringBuilder();
+
+        void accept(String line) {
+            if (line.isEmpty()) {
+                dispatch();
+                return;
+            }
+            if (line.startsWith(":")) {
+                return;
+            }
+            int colon = line.indexOf(':');
+            String field = colon < 0 ? line : line.substring(0, colon);
+            String value = colon < 0 ? "" : line.substring(colon + 1);
+            if (value.startsWith(" ")) {
+                value = value.substring(1);
+            }
+            switch (field) {
+                case "event":
+                    eventName = value;
+                    break;
+                case "data":
+                    if (data.length() > 0) {
+                        data.append('\n');
+                    }
+                    data.append(value);
+                    break;
+                case "id":
+                    eventId = value;
+                    break;
+                case "retry":
+                    try {
+                        serverRetryMs = Long.parseLong(value.trim());
+                    } catch (NumberFormatException ignored) {
+                        // Per the SSE spec an invalid retry field is ignored.
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        private void dispatch() {
+            if (eventId != null) {
+                lastEventId = eventId;
+            }
+            if (data.length() > 0 && (eventName == null || eventName.startsWith("appointment"))) {
+                try {
+                    AppointmentDTO appointment = JsonCodec.read(data.toString(), AppointmentDTO.class);
+                    listener.onEvent(new Event(eventId, EventType.fromName(eventName), appointment));
+                } catch (RuntimeException e) {
+                    System.err.println("ERROR: Invalid appointment event " + eventId + ": " + e.getMessage());
+                }
+            }
+            eventName = null;
+            eventId = null;
+            data.setLength(0);
+        }
+    }
+}
@@ -0,0 +1,237 @@
+package com.clinic.ui.service;
+
+import com.clinic.ui.model.AppointmentDTO;
+import com.clinic.ui.model.MedicalRecordDTO;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Speculatively loads what an appointment tab needs for a row the user is
+ * hovering or has selected, so a double-click can fill the tab at once. Patient
+ * and doctor land in their shared caches; the medical record is held here until
+ * the tab takes it.
+ *
+ * Prefetches stay behind interactive requests: the queue is small and drops its
+ * oldest entry when full and only a couple run at a time. Each call returns a
+ * {@link Handle}; cancelling it abandons the prefetch only once no other caller
+ * still wants the same appointment.
+ */
+public class AppointmentPrefetcher {
+    private static final int MAX_QUEUED = 8;
+    private static final int MAX_IN_FLIGHT = 2;
+    private static final int MAX_RECORDS = 32;
+    private static final Duration RECORD_TTL = Duration.ofSeconds(30);
+
+    private static final AppointmentPrefetcher INSTANCE = new AppointmentPrefetcher();
+
+    private final Deque<Job> queue = new ArrayDeque<>();
+    private final Map<Integer, Job> inFlight = new HashMap<>();
+    private final Map<Integer, Prefetched> records = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, Prefetched> eldest) {
+            return size() > MAX_RECORDS;
+        }
+    };
+
+    private long issued;
+    private long used;
+
+    AppointmentPrefetcher() {
+        // A record held from before it was created would be stale.
+        Outbox.getInstance().addListener((entry, response) -> {
+            if (entry.getKind() == Outbox.Kind.MEDICAL_RECORD) {
+                forget(JsonCodec.read(response, MedicalRecordDTO.class).getAppointmentId());
+            }
+        });
+    }
+
+    public static AppointmentPrefetcher getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Queues a prefetch for {@code appointment}. The returned handle cancels this
+     * caller's interest in it and nothing else.
+     */
+    public synchronized Handle prefetch(AppointmentDTO appointment) {
+        Handle handle = new Handle(appointment == null ? null : appointment.getId());
+        if (handle.appointmentId == null) {
+            return handle;
+        }
+        Integer id = handle.appointmentId;
+        Job running = inFlight.get(id);
+        if (running != null) {
+            running.owners.add(handle);
+            return handle;
+        }
+        Prefetched held = records.get(id);
+        if (held != null && !held.isExpired()) {
+            return handle;
+        }
+        Job job = null;
+        for (Iterator<Job> it = queue.iterator(); it.hasNext(); ) {
+            Job queued = it.next();
+            if (id.equals(queued.appointment.getId())) {
+                it.remove();
+                job = queued;
+            }
+        }
+        if (job == null) {
+            job = new Job(appointment);
+        }
+        job.owners.add(handle);
+        queue.addLast(job);
+        while (queue.size() > MAX_QUEUED) {
+            queue.removeFirst();
+        }
+        pump();
+        return handle;
+    }
+
+    /**
+     * Drops {@code handle}'s interest; a queued or running prefetch nobody else
+     * asked for is abandoned. Records that already arrived are kept.
+     */
+    private synchronized void release(Handle handle) {
+        Integer id = handle.appointmentId;
+        queue.removeIf(job -> id.equals(job.appointment.getId())
+                && job.owners.remove(handle) && job.owners.isEmpty());
+        Job running = inFlight.get(id);
+        if (running != null && running.owners.remove(handle) && running.owners.isEmpty()) {
+            inFlight.remove(id);
+            // Checked before cancelling, which would make the record count as done.
+            Prefetched held = records.get(id);
+            if (held != null && !held.record.isDone()) {
+                records.remove(id);
+            }
+            running.requests.forEach(request -> request.cancel(true));
+            pump();
+        }
+    }
+
+    /**
+     * Hands over the prefetched medical record, or starts a normal request when
+     * there is none. Each prefetched record is used at most once.
+     */
+    public synchronized CompletableFuture<MedicalRecordDTO> getMedicalRecord(Integer appointmentId) {
+        Prefetched held = records.remove(appointmentId);
+        if (held != null && !held.isExpired()) {
+            Job running = inFlight.get(appointmentId);
+            if (running != null) {
+                running.requests.remove(held.record);
+            }
+            used++;
+            return held.record;
+        }
+        return fetchMedicalRecord(appointmentId);
+    }
+
+    /**
+     * Discards a held record, e.g. after it was created or changed.
+     */
+    public synchronized void forget(Integer appointmentId) {
+        records.remove(appointmentId);
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("AppointmentPrefetcher{queued=%d, inFlight=%d, held=%d, issued=%d, used=%d}",
+                queue.size(), inFlight.size(), records.size(), issued, used);
+    }
+
+    private void pump() {
+        while (inFlight.size() < MAX_IN_FLIGHT && !queue.isEmpty()) {
+            start(queue.removeFirst());
+        }
+    }
+
+    private void start(Job job) {
+        AppointmentDTO appointment = job.appointment;
+        Integer id = appointment.getId();
+        CompletableFuture<MedicalRecordDTO> record = fetchMedicalRecord(id);
+        records.put(id, new Prefetched(record));
+
+        List<CompletableFuture<?>> requests = job.requests;
+        requests.add(record);
+        if (appointment.getPatientId() != null) {
+            requests.add(PatientLookup.getInstance().findById(appointment.getPatientId()));
+        }
+        if (appointment.getDoctorId() != null) {
+            requests.add(DoctorRegistry.getInstance().resolve(appointment.getDoctorId()));
+        }
+        inFlight.put(id, job);
+        issued++;
+
+        CompletableFuture.allOf(requests.toArray(new CompletableFuture<?>[0]))
+                .whenComplete((ignored, error) -> finished(id, job));
+    }
+
+    private synchronized void finished(Integer id, Job job) {
+        if (inFlight.get(id) == job) {
+            inFlight.remove(id);
+        }
+        pump();
+    }
+
+    private static CompletableFuture<MedicalRecordDTO> fetchMedicalRecord(Integer appointmentId) {
+        CompletableFuture<String> request = ApiService.getMedicalRecordByAppointmentIdAsync(appointmentId);
+        CompletableFuture<MedicalRecordDTO> result = request.thenApply(json -> JsonCodec.read(json, MedicalRecordDTO.class));
+        result.whenComplete((record, error) -> {
+            if (result.isCancelled()) {
+                request.cancel(true);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * One caller's interest in a prefetch.
+     */
+    public final class Handle {
+        private final Integer appointmentId;
+
+        private Handle(Integer appointmentId) {
+            this.appointmentId = appointmentId;
+        }
+
+        public void cancel() {
+            if (appointmentId != null) {
+                release(this);
+            }
+        }
+    }
+
+    private static final class Job {
+        final AppointmentDTO appointment;
+        final Set<Handle> owners = new HashSet<>();
+        final List<CompletableFuture<?>> requests = new ArrayList<>();
+
+        Job(AppointmentDTO appointment) {
+            this.appointment = appointment;
+        }
+    }
+
+    private static final class Prefetched {
+        final CompletableFuture<MedicalRecordDTO> record;
+        final long fetchedAt = System.nanoTime();
+
+        Prefetched(CompletableFuture<MedicalRecordDTO> record) {
+            this.record = record;
+        }
+
+        boolean isExpired() {
+            return System.nanoTime() - fetchedAt > RECORD_TTL.toNanos();
+        }
+    }
+}
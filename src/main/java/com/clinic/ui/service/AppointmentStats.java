@@ -0,0 +1,239 @@
+package com.clinic.ui.service;
+
+import com.clinic.ui.model.AppointmentDTO;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+/**
+ * Running totals over a set of appointments: count per status, load per doctor
+ * and the average time from the scheduled time to completion. Adding or
+ * removing one appointment costs O(1), so a live list can keep the totals
+ * current by applying its changes instead of recounting. Partial totals built
+ * in parallel combine with {@link #merge}.
+ *
+ * Not thread-safe; each instance belongs to one thread at a time.
+ */
+public class AppointmentStats {
+    private final Map<String, Long> byStatus = new HashMap<>();
+    private final Map<Integer, DoctorLoad> byDoctor = new HashMap<>();
+    private long total;
+    private long completionSeconds;
+    private long completionCount;
+
+    public static final class DoctorLoad {
+        private final Integer doctorId;
+        private String doctorName;
+        private long total;
+        private long completed;
+        private long completionSeconds;
+        private long completionCount;
+
+        private DoctorLoad(Integer doctorId, String doctorName) {
+            this.doctorId = doctorId;
+            this.doctorName = doctorName;
+        }
+
+        private DoctorLoad copy() {
+            DoctorLoad copy = new DoctorLoad(doctorId, doctorName);
+            copy.total = total;
+            copy.completed = completed;
+            copy.completionSeconds = completionSeconds;
+            copy.completionCount = completionCount;
+            return copy;
+        }
+
+        public Integer getDoctorId() {
+            return doctorId;
+        }
+
+        public String getDoctorName() {
+            return doctorName;
+        }
+
+        public long getTotal() {
+            return total;
+        }
+
+        public long getCompleted() {
+            return completed;
+        }
+
+        /**
+         * Average time from the scheduled time to completion, or {@code null}
+         * when none of the doctor's appointments has been completed.
+         */
+        public Duration getAverageCompletion() {
+            return completionCount == 0 ? null : Duration.ofSeconds(completionSeconds / completionCount);
+        }
+    }
+
+    public void add(AppointmentDTO appointment) {
+        apply(appointment, 1);
+    }
+
+    /**
+     * Takes back an appointment added earlier. It must have the same field
+     * values as when it was added.
+     */
+    public void remove(AppointmentDTO appointment) {
+        apply(appointment, -1);
+    }
+
+    public void clear() {
+        byStatus.clear();
+        byDoctor.clear();
+        total = 0;
+        completionSeconds = 0;
+        completionCount = 0;
+    }
+
+    /**
+     * Adds the totals of {@code other} to this instance and returns it.
+     */
+    public AppointmentStats merge(AppointmentStats other) {
+        total += other.total;
+        completionSeconds += other.completionSeconds;
+        completionCount += other.completionCount;
+        other.byStatus.forEach((status, count) -> byStatus.merge(status, count, Long::sum));
+        for (DoctorLoad load : other.byDoctor.values()) {
+            DoctorLoad mine = byDoctor.get(load.doctorId);
+            if (mine == null) {
+                byDoctor.put(load.doctorId, load.copy());
+            } else {
+                mine.total += load.total;
+                mine.completed += load.completed;
+                mine.completionSeconds += load.completionSeconds;
+                mine.completionCount += load.completionCount;
+                if (mine.doctorName == null) {
+                    mine.doctorName = load.doctorName;
+                }
+            }
+        }
+        return this;
+    }
+
+    public long getTotal() {
+        return total;
+    }
+
+    public long getCount(String status) {
+        return byStatus.getOrDefault(status, 0L);
+    }
+
+    /**
+     * Average time from the scheduled time to completion, or {@code null} when
+     * nothing has been completed.
+     */
+    public Duration getAverageCompletion() {
+        return completionCount == 0 ? null : Duration.ofSeconds(completionSeconds / completionCount);
+    }
+
+    /**
+     * Copies of the per-doctor totals, busiest doctor first.
+     */
+    public List<DoctorLoad> getDoctorLoads() {
+        List<DoctorLoad> loads = new ArrayList<>(byDoctor.size());
+        for (DoctorLoad load : byDoctor.values()) {
+            loads.add(load.copy());
+        }
+        loads.sort((a, b) -> Long.compare(b.total, a.total));
+        return loads;
+    }
+
+    /**
+     * Aggregates every appointment scheduled between {@code from} and today
+     * (everything when {@code from} is null). Only that date range is requested,
+     * so the cost follows the range rather than the size of the history. Each
+     * streamed chunk is folded on the common pool while the rest is still
+     * downloading, and the partial totals are merged at the end; no appointment
+     * list is kept.
+     */
+    public static CompletableFuture<AppointmentStats> collectAsync(LocalDate from) {
+        LocalDate to = LocalDate.now();
+        List<CompletableFuture<AppointmentStats>> partials = Collections.synchronizedList(new ArrayList<>());
+        Consumer<List<AppointmentDTO>> fold = chunk ->
+                partials.add(CompletableFuture.supplyAsync(() -> of(chunk, from, to)));
+        CompletableFuture<Integer> stream = from == null
+                ? ApiService.streamAppointments(fold)
+                : ApiService.streamAppointmentsBetween(from, to, fold);
+        CompletableFuture<AppointmentStats> result = stream.thenCompose(count -> {
+            CompletableFuture<?>[] pending = partials.toArray(new CompletableFuture<?>[0]);
+            return CompletableFuture.allOf(pending).thenApply(ignored -> {
+                AppointmentStats stats = new AppointmentStats();
+                for (CompletableFuture<AppointmentStats> partial : partials) {
+                    stats.merge(partial.join());
+                }
+                return stats;
+            });
+        });
+        result.whenComplete((stats, error) -> {
+            if (result.isCancelled()) {
+                stream.cancel(true);
+            }
+        });
+        return result;
+    }
+
+    private static AppointmentStats of(List<AppointmentDTO> appointments, LocalDate from, LocalDate to) {
+        AppointmentStats stats = new AppointmentStats();
+        for (AppointmentDTO appointment : appointments) {
+            LocalDateTime scheduled = appointment.getDateTime();
+            if (from == null || (scheduled != null && !scheduled.toLocalDate().isBefore(from)
+                    && !scheduled.toLocalDate().isAfter(to))) {
+                stats.add(appointment);
+            }
+        }
+        return stats;
+    }
+
+    private void apply(AppointmentDTO appointment, int sign) {
+        total += sign;
+        if (appointment.getStatus() != null) {
+            byStatus.merge(appointment.getStatus(), (long) sign, Long::sum);
+        }
+
+        DoctorLoad load = byDoctor.computeIfAbsent(appointment.getDoctorId(),
+                id -> new DoctorLoad(id, appointment.getDoctorName()));
+        if (load.doctorName == null) {
+            load.doctorName = appointment.getDoctorName();
+        }
+        load.total += sign;
+
+        if ("COMPLETED".equals(appointment.getStatus())) {
+            load.completed += sign;
+            long seconds = completionSeconds(appointment);
+            if (seconds >= 0) {
+                completionSeconds += sign * seconds;
+                completionCount += sign;
+                load.completionSeconds += sign * seconds;
+                load.completionCount += sign;
+            }
+        }
+        if (load.total == 0) {
+            byDoctor.remove(appointment.getDoctorId());
+        }
+    }
+
+    /**
+     * Seconds from the scheduled time to completion, or -1 when unknown. There
+     * is no completion timestamp, so the last update of a completed appointment
+     * stands in for it.
+     */
+    private static long completionSeconds(AppointmentDTO appointment) {
+        LocalDateTime scheduled = appointment.getDateTime();
+        LocalDateTime completed = appointment.getUpdatedAt();
+        if (scheduled == null || completed == null || completed.isBefore(scheduled)) {
+            return -1;
+        }
+        return Duration.between(scheduled, completed).getSeconds();
+    }
+}
@@ -0,0 +1,70 @@
+package com.clinic.ui.service;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * One write inside a {@link ApiService#sendBatchAsync batch}. A field of the
+ * body can be bound to the id created by an earlier operation of the same
+ * batch, so dependent writes (patient, then appointment, then medical record)
+ * travel together.
+ */
+public final class BatchOperation {
+    private final String method;
+    private final String path;
+    private final String body;
+    private final Map<String, Integer> bindings = new LinkedHashMap<>();
+    private String idempotencyKey;
+
+    private BatchOperation(String method, String path, String body) {
+        this.method = method;
+        this.path = path;
+        this.body = body;
+    }
+
+    public static BatchOperation post(String path, String jsonBody) {
+        return new BatchOperation("POST", path, jsonBody);
+    }
+
+    public static BatchOperation put(String path, String jsonBody) {
+        return new BatchOperation("PUT", path, jsonBody);
+    }
+
+    /**
+     * Sets {@code field} of the body to the {@code id} returned by the operation
+     * at {@code operationIndex}, which must come earlier in the batch.
+     */
+    public BatchOperation bindId(String field, int operationIndex) {
+        bindings.put(field, operationIndex);
+        return this;
+    }
+
+    /**
+     * Key the server uses to recognise a retry of a write it already applied.
+     */
+    public BatchOperation idempotencyKey(String key) {
+        this.idempotencyKey = key;
+        return this;
+    }
+
+    public String getMethod() {
+        return method;
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    public String getBody() {
+        return body;
+    }
+
+    public String getIdempotencyKey() {
+        return idempotencyKey;
+    }
+
+    public Map<String, Integer> getBindings() {
+        return Collections.unmodifiableMap(bindings);
+    }
+}
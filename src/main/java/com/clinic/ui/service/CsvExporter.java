@@ -0,0 +1,192 @@
+package com.clinic.ui.service;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.LongConsumer;
+
+/**
+ * Exports appointments or patients to a CSV file straight from the API
+ * response. Records are read token by token and written out as rows without
+ * becoming DTOs or being collected, so memory use does not grow with the
+ * export. The file is written next to the target and only moved into place
+ * once complete, so a cancelled or failed export leaves nothing behind.
+ */
+public class CsvExporter {
+    private static final List<String> APPOINTMENT_COLUMNS = List.of("id", "dateTime", "patientId", "patientName",
+            "doctorId", "doctorName", "reason", "status", "createdAt", "updatedAt");
+    private static final List<String> PATIENT_COLUMNS = List.of("id", "socialId", "fullName", "dob", "gender",
+            "phone", "email", "address", "createdAt", "updatedAt");
+    private static final int FLUSH_CHARS = 64 * 1024;
+    private static final int PROGRESS_EVERY_ROWS = 10_000;
+    private static final String FORMULA_PREFIXES = "=+-@\t\r";
+    // Only free text gets the formula guard; ids, dates and phone numbers such
+    // as +84... are written exactly as the server sent them.
+    private static final Set<String> FREE_TEXT_COLUMNS = Set.of("fullName", "patientName", "doctorName",
+            "address", "reason", "email");
+
+    private final String path;
+    private final List<String> columns;
+    private final Path target;
+    private volatile boolean cancelled;
+    private volatile CompletableFuture<InputStream> request;
+
+    private CsvExporter(String path, List<String> columns, Path target) {
+        this.path = path;
+        this.columns = columns;
+        this.target = target;
+    }
+
+    public static CsvExporter appointments(boolean todayOnly, Path target) {
+        return new CsvExporter(todayOnly ? "/appointments/today" : "/appointments", APPOINTMENT_COLUMNS, target);
+    }
+
+    public static CsvExporter patients(Path target) {
+        return new CsvExporter("/patients", PATIENT_COLUMNS, target);
+    }
+
+    /**
+     * Runs the export on a background thread and completes with the number of
+     * rows written. {@code onProgress} receives the row count every 10,000 rows.
+     */
+    public CompletableFuture<Long> start(LongConsumer onProgress) {
+        CompletableFuture<Long> result = new CompletableFuture<>();
+        Thread thread = new Thread(() -> {
+            try {
+                result.complete(run(onProgress));
+            } catch (Throwable e) {
+                result.completeExceptionally(ApiService.unwrap(e));
+            }
+        }, "csv-export");
+        thread.setDaemon(true);
+        thread.start();
+        return result;
+    }
+
+    /**
+     * Stops the export; the future fails with a {@link CancellationException}.
+     */
+    public void cancel() {
+        cancelled = true;
+        CompletableFuture<InputStream> pending = request;
+        if (pending != null) {
+            pending.cancel(true);
+        }
+    }
+
+    private long run(LongConsumer onProgress) throws Exception {
+        long started = System.nanoTime();
+        Path partial = target.resolveSibling(target.getFileName() + ".part");
+        long rows = 0;
+        request = ApiService.openBodyStreamAsync(path);
+        if (cancelled) {
+            request.cancel(true);
+        }
+        try (InputStream body = request.get();
+             JsonParser parser = JsonCodec.factory().createParser(body);
+             FileChannel channel = FileChannel.open(partial, StandardOpenOption.CREATE,
+                     StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new IOException("Expected a JSON array from " + path);
+            }
+            Map<String, Integer> positions = new HashMap<>();
+            for (int i = 0; i < columns.size(); i++) {
+                positions.put(columns.get(i), i);
+            }
+            String[] values = new String[columns.size()];
+            boolean[] freeText = new boolean[columns.size()];
+            for (int i = 0; i < columns.size(); i++) {
+                freeText[i] = FREE_TEXT_COLUMNS.contains(columns.get(i));
+            }
+
+            // The BOM lets spreadsheet programs pick UTF-8 for the Vietnamese text.
+            StringBuilder out = new StringBuilder(FLUSH_CHARS + 1024).append('\uFEFF');
+            appendRow(out, columns.toArray(new String[0]), new boolean[columns.size()]);
+            while (parser.nextToken() == JsonToken.START_OBJECT) {
+                if (cancelled) {
+                    throw new CancellationException("Export cancelled");
+                }
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    Integer position = positions.get(parser.currentName());
+                    JsonToken value = parser.nextToken();
+                    if (value == JsonToken.START_OBJECT || value == JsonToken.START_ARRAY) {
+                        parser.skipChildren();
+                    } else if (position != null && value != JsonToken.VALUE_NULL) {
+                        values[position] = parser.getText();
+                    }
+                }
+                appendRow(out, values, freeText);
+                Arrays.fill(values, null);
+                rows++;
+                if (out.length() >= FLUSH_CHARS) {
+                    write(channel, out);
+                }
+                if (rows % PROGRESS_EVERY_ROWS == 0) {
+                    onProgress.accept(rows);
+                }
+            }
+            write(channel, out);
+            channel.force(false);
+        } catch (Exception e) {
+            Files.deleteIfExists(partial);
+            throw e;
+        }
+        Files.move(partial, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        onProgress.accept(rows);
+        System.out.println("DEBUG: Exported " + rows + " rows from " + path + " to " + target + " in "
+                + (System.nanoTime() - started) / 1_000_000 + " ms");
+        return rows;
+    }
+
+    private static void appendRow(StringBuilder out, String[] values, boolean[] freeText) {
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                out.append(',');
+            }
+            String value = values[i];
+            if (value == null || value.isEmpty()) {
+                continue;
+            }
+            if (freeText[i] && FORMULA_PREFIXES.indexOf(value.charAt(0)) >= 0) {
+                // Spreadsheets would evaluate the cell as a formula; the apostrophe
+                // makes them show it as text.
+                value = "'" + value;
+            }
+            boolean quote = false;
+            for (int c = 0; c < value.length() && !quote; c++) {
+                char ch = value.charAt(c);
+                quote = ch == ',' || ch == '"' || ch == '\n' || ch == '\r';
+            }
+            if (quote) {
+                out.append('"').append(value.replace("\"", "\"\"")).append('"');
+            } else {
+                out.append(value);
+            }
+        }
+        out.append('\n');
+    }
+
+    private static void write(FileChannel channel, StringBuilder out) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(out.toString().getBytes(StandardCharsets.UTF_8));
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        out.setLength(0);
+    }
+}
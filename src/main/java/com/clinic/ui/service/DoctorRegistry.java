@@ -0,0 +1,197 @@
+package com.clinic.ui.service;
+
+import com.clinic.ui.model.DoctorDTO;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Process-wide doctor list shared by every appointment tab. The list is loaded
+ * once, indexed by id, and refreshed in the background shortly before its TTL
+ * runs out, so opening a tab normally costs no doctor round trip at all.
+ */
+public class DoctorRegistry {
+    private static final Duration DEFAULT_TTL = Duration.ofMinutes(10);
+    private static final double REFRESH_AHEAD_FACTOR = 0.8;
+
+    private static final DoctorRegistry INSTANCE = new DoctorRegistry(DEFAULT_TTL);
+
+    private final Duration ttl;
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "doctor-registry-refresh");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private volatile Snapshot snapshot;
+    private CompletableFuture<List<DoctorDTO>> inFlight;
+    private ScheduledFuture<?> scheduledRefresh;
+
+    DoctorRegistry(Duration ttl) {
+        this.ttl = ttl;
+    }
+
+    public static DoctorRegistry getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Returns the cached doctors, loading them on first use. An expired list is
+     * still served while a refresh runs in the background.
+     */
+    public synchronized CompletableFuture<List<DoctorDTO>> getDoctors() {
+        Snapshot current = snapshot;
+        if (current == null) {
+            return refresh();
+        }
+        if (current.isExpired(ttl)) {
+            refresh();
+        }
+        return CompletableFuture.completedFuture(current.doctors);
+    }
+
+    /**
+     * Installs doctors restored from a local snapshot. They count as expired, so
+     * the first {@link #getDoctors()} serves them and refreshes in the background.
+     */
+    public synchronized void seed(List<DoctorDTO> doctors) {
+        if (snapshot == null && doctors != null && !doctors.isEmpty()) {
+            snapshot = new Snapshot(new ArrayList<>(doctors), true);
+        }
+    }
+
+    /**
+     * The doctors currently held, without triggering a load.
+     */
+    public List<DoctorDTO> getCachedDoctors() {
+        Snapshot current = snapshot;
+        return current == null ? List.of() : current.doctors;
+    }
+
+    public DoctorDTO getById(Integer id) {
+        Snapshot current = snapshot;
+        return current == null || id == null ? null : current.byId.get(id);
+    }
+
+    public List<DoctorDTO> getBySpecialty(String specialty) {
+        Snapshot current = snapshot;
+        if (current == null || specialty == null) {
+            return List.of();
+        }
+        return current.bySpecialty.getOrDefault(normalize(specialty), List.of());
+    }
+
+    /**
+     * Precomputed lower-case "name - specialty" key used for type-ahead matching,
+     * so filtering a large roster allocates nothing per comparison.
+     */
+    public String getSearchKey(DoctorDTO doctor) {
+        Snapshot current = snapshot;
+        String key = current == null ? null : current.searchKeys.get(doctor);
+        return key != null ? key : normalize(doctor.toString());
+    }
+
+    public boolean matches(DoctorDTO doctor, String query) {
+        if (query == null || query.isBlank()) {
+            return true;
+        }
+        return getSearchKey(doctor).contains(normalize(query));
+    }
+
+    static String normalize(String text) {
+        return text.trim().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Resolves a doctor from the cache, falling back to a network lookup only
+     * when the id is unknown (e.g. a doctor added after the last refresh).
+     */
+    public CompletableFuture<DoctorDTO> resolve(Integer id) {
+        return getDoctors().thenCompose(doctors -> {
+            DoctorDTO doctor = getById(id);
+            if (doctor != null) {
+                return CompletableFuture.completedFuture(doctor);
+            }
+            return ApiService.getDoctorByIdAsync(id).thenApply(json -> JsonCodec.read(json, DoctorDTO.class));
+        });
+    }
+
+    public synchronized CompletableFuture<List<DoctorDTO>> refresh() {
+        if (inFlight != null) {
+            return inFlight;
+        }
+
+        CompletableFuture<List<DoctorDTO>> request = ApiService.getDoctorsAsync()
+                .thenApply(json -> JsonCodec.readList(json, DoctorDTO.class));
+        inFlight = request;
+        request.whenComplete((doctors, error) -> onRefreshed(request, doctors, error));
+        return request;
+    }
+
+    private synchronized void onRefreshed(CompletableFuture<List<DoctorDTO>> request,
+                                          List<DoctorDTO> doctors, Throwable error) {
+        if (inFlight == request) {
+            inFlight = null;
+        }
+        if (error != null) {
+            System.err.println("ERROR refreshing doctor registry: " + ApiService.unwrap(error).getMessage());
+            if (snapshot != null) {
+                scheduleRefresh(ttl.toMillis() / 10);
+            }
+            return;
+        }
+
+        snapshot = new Snapshot(doctors, false);
+        System.out.println("DEBUG: Doctor registry loaded " + doctors.size() + " doctors");
+        scheduleRefresh((long) (ttl.toMillis() * REFRESH_AHEAD_FACTOR));
+    }
+
+    private void scheduleRefresh(long delayMillis) {
+        if (scheduledRefresh != null) {
+            scheduledRefresh.cancel(false);
+        }
+        scheduledRefresh = scheduler.schedule(this::refresh, delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private static final class Snapshot {
+        private final List<DoctorDTO> doctors;
+        private final Map<Integer, DoctorDTO> byId;
+        private final Map<String, List<DoctorDTO>> bySpecialty;
+        private final Map<DoctorDTO, String> searchKeys;
+        private final long loadedAt = System.nanoTime();
+        private final boolean restored;
+
+        private Snapshot(List<DoctorDTO> doctors, boolean restored) {
+            this.restored = restored;
+            this.doctors = Collections.unmodifiableList(doctors);
+            Map<Integer, DoctorDTO> index = new HashMap<>(doctors.size() * 2);
+            Map<String, List<DoctorDTO>> specialties = new HashMap<>();
+            Map<DoctorDTO, String> keys = new IdentityHashMap<>(doctors.size() * 2);
+            for (DoctorDTO doctor : doctors) {
+                index.put(doctor.getId(), doctor);
+                if (doctor.getSpecialty() != null) {
+                    specialties.computeIfAbsent(normalize(doctor.getSpecialty()), k -> new ArrayList<>()).add(doctor);
+                }
+                keys.put(doctor, normalize(doctor.toString()));
+            }
+            this.byId = Collections.unmodifiableMap(index);
+            this.bySpecialty = Collections.unmodifiableMap(specialties);
+            this.searchKeys = keys;
+        }
+
+        private boolean isExpired(Duration ttl) {
+            return restored || System.nanoTime() - loadedAt > ttl.toNanos();
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package com.clinic.ui.service;
+
+import com.clinic.ui.model.AppointmentDTO;
+import com.clinic.ui.model.DoctorDTO;
+import com.clinic.ui.model.MedicalRecordDTO;
+import com.clinic.ui.model.PageDTO;
+import com.clinic.ui.model.PatientDTO;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Shared JSON mapping for the whole client. ObjectMapper construction and
+ * per-type serializer lookup are expensive, so one configured mapper is kept
+ * and an ObjectReader/ObjectWriter is cached per type. Readers and writers are
+ * immutable and safe to use from any thread.
+ */
+public final class JsonCodec {
+    private static final List<Class<?>> DTO_TYPES =
+            List.of(PatientDTO.class, DoctorDTO.class, AppointmentDTO.class, MedicalRecordDTO.class);
+
+    private static final ObjectMapper mapper = new ObjectMapper()
+            .registerModule(new JavaTimeModule())
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
+    private static final Map<JavaType, ObjectReader> readers = new ConcurrentHashMap<>();
+    private static final Map<JavaType, ObjectWriter> writers = new ConcurrentHashMap<>();
+
+    private JsonCodec() {}
+
+    public static ObjectMapper mapper() {
+        return mapper;
+    }
+
+    public static JsonFactory factory() {
+        return mapper.getFactory();
+    }
+
+    public static ObjectReader readerFor(Class<?> type) {
+        return readerFor(mapper.constructType(type));
+    }
+
+    public static ObjectReader readerForListOf(Class<?> type) {
+        return readerFor(mapper.getTypeFactory().constructCollectionType(List.class, type));
+    }
+
+    public static ObjectReader readerForPageOf(Class<?> type) {
+        return readerFor(mapper.getTypeFactory().constructParametricType(PageDTO.class, type));
+    }
+
+    public static ObjectReader readerFor(JavaType type) {
+        return readers.computeIfAbsent(type, mapper::readerFor);
+    }
+
+    public static ObjectWriter writerFor(Class<?> type) {
+        return writers.computeIfAbsent(mapper.constructType(type), mapper::writerFor);
+    }
+
+    public static <T> T read(String json, Class<T> type) {
+        try {
+            return readerFor(type).readValue(json);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public static <T> List<T> readList(String json, Class<T> type) {
+        try {
+            return readerForListOf(type).readValue(json);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public static String write(Object value) {
+        try {
+            return writerFor(value.getClass()).writeValueAsString(value);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Builds and exercises the readers and writers for every DTO so the first
+     * real request does not pay for serializer introspection.
+     */
+    public static void warmUp() {
+        long start = System.nanoTime();
+        try {
+            for (Class<?> type : DTO_TYPES) {
+                Object sample = type.getDeclaredConstructor().newInstance();
+                String json = writerFor(type).writeValueAsString(sample);
+                readerFor(type).readValue(json);
+                readerForListOf(type).readValue("[" + json + "]");
+            }
+            readerForPageOf(AppointmentDTO.class);
+            readerForPageOf(PatientDTO.class);
+        } catch (Exception e) {
+            System.err.println("WARN: JSON codec warm-up failed: " + e.getMessage());
+            return;
+        }
+        System.out.println("DEBUG: JSON codec warmed up in " + (System.nanoTime() - start) / 1_000_000 + " ms");
+    }
+}
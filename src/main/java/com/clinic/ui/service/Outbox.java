@@ -0,0 +1,580 @@
+package com.clinic.ui.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Write-behind queue for intake writes (patients, appointments, medical
+ * records). A write is accepted as soon as it is durable in an append-only
+ * journal and gets a provisional negative id; a background flusher then posts
+ * the writes to the API in order, retrying with backoff while the backend is
+ * unreachable. Queued writes go out together in one batch request, where a
+ * write can refer to the id created by an earlier one; provisional ids of
+ * writes already sent are replaced with the server-assigned ids.
+ *
+ * Each write carries an idempotency key kept in the journal, so a write that
+ * reached the server but whose answer was lost is not applied twice on retry.
+ *
+ * Journal appends from concurrent writers are grouped so one fsync covers the
+ * whole batch. The journal is truncated whenever the queue drains. If the
+ * journal cannot be opened, writes are refused rather than kept only in memory.
+ */
+public class Outbox {
+    private static final long MIN_RETRY_MS = 1_000;
+    private static final long MAX_RETRY_MS = 60_000;
+    private static final int MAX_BATCH = 16;
+
+    private static final Outbox INSTANCE = new Outbox(ApiService.getConfig().getOutboxFile());
+
+    public enum Kind {
+        PATIENT("/patients", null),
+        APPOINTMENT("/appointments", "patientId"),
+        MEDICAL_RECORD("/medical-records", "appointmentId");
+
+        private final String path;
+        private final String reference;
+
+        Kind(String path, String reference) {
+            this.path = path;
+            this.reference = reference;
+        }
+
+        /**
+         * Field holding the id of an entity this write depends on, if any.
+         */
+        public String getReference() {
+            return reference;
+        }
+    }
+
+    public static final class Entry {
+        private final long seq;
+        private final Kind kind;
+        private final String body;
+        private final String key;
+        private final CompletableFuture<String> result = new CompletableFuture<>();
+        private volatile Integer serverId;
+
+        private Entry(long seq, Kind kind, String body, String key) {
+            this.seq = seq;
+            this.kind = kind;
+            this.body = body;
+            this.key = key;
+        }
+
+        public long getSeq() {
+            return seq;
+        }
+
+        public Kind getKind() {
+            return kind;
+        }
+
+        /**
+         * Provisional id handed out until the server has assigned the real one.
+         */
+        public int getLocalId() {
+            return (int) -seq;
+        }
+
+        public Integer getServerId() {
+            return serverId;
+        }
+
+        /**
+         * Completes with the server's response body once flushed, or
+         * exceptionally when the server rejected the write.
+         */
+        public CompletableFuture<String> getResult() {
+            return result;
+        }
+    }
+
+    public interface Listener {
+        void onFlushed(Entry entry, String response);
+
+        default void onRejected(Entry entry, Throwable error) {}
+    }
+
+    private static final class JournalWrite {
+        final String line;
+        final CompletableFuture<Void> done = new CompletableFuture<>();
+
+        JournalWrite(String line) {
+            this.line = line;
+        }
+
+        boolean isTruncate() {
+            return line == null;
+        }
+    }
+
+    private final Path file;
+    private final Deque<Entry> pending = new ArrayDeque<>();
+    private final Map<Integer, Integer> serverIds = new ConcurrentHashMap<>();
+    private final Set<Integer> rejected = ConcurrentHashMap.newKeySet();
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    private final BlockingQueue<JournalWrite> journalQueue = new LinkedBlockingQueue<>();
+    private final ScheduledExecutorService flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "outbox-flusher");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private FileChannel journal;
+    private IOException journalError;
+    private boolean started;
+    private boolean flushScheduled;
+    private long nextSeq = 1;
+    private int unfinished;
+    private boolean journalDirty;
+    private long retryDelayMs = MIN_RETRY_MS;
+
+    Outbox(String location) {
+        this.file = location == null || location.isBlank() || location.equalsIgnoreCase("none")
+                ? null : Path.of(location);
+    }
+
+    public static Outbox getInstance() {
+        return INSTANCE;
+    }
+
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Replays writes left in the journal by a previous run and starts flushing.
+     */
+    public synchronized void start() {
+        if (started) {
+            return;
+        }
+        started = true;
+        if (file != null) {
+            try {
+                replay();
+                PrivateFiles.createParent(file);
+                journal = PrivateFiles.open(file, StandardOpenOption.CREATE,
+                        StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+                Thread writer = new Thread(this::writeJournal, "outbox-journal");
+                writer.setDaemon(true);
+                writer.start();
+            } catch (IOException e) {
+                System.err.println("ERROR opening outbox journal " + file + ": " + e.getMessage());
+                journal = null;
+                journalError = e;
+            }
+        }
+        if (!pending.isEmpty()) {
+            System.out.println("DEBUG: Outbox resuming " + pending.size() + " unsent writes");
+            scheduleFlush(0);
+        }
+    }
+
+    /**
+     * Accepts a write. The future completes once the write is durable, with the
+     * entry carrying its provisional id; the write itself is sent later. It
+     * fails when the journal is unavailable.
+     */
+    public CompletableFuture<Entry> enqueue(Kind kind, Object value) {
+        String body;
+        try {
+            body = JsonCodec.write(value);
+        } catch (UncheckedIOException e) {
+            return CompletableFuture.failedFuture(e.getCause());
+        }
+
+        Entry entry;
+        CompletableFuture<Void> durable;
+        synchronized (this) {
+            start();
+            if (journalError != null) {
+                return CompletableFuture.failedFuture(new IOException("Không mở được nhật ký hàng đợi "
+                        + file + ": " + journalError.getMessage(), journalError));
+            }
+            entry = new Entry(nextSeq++, kind, body, UUID.randomUUID().toString());
+            unfinished++;
+            ObjectNode record = JsonCodec.mapper().createObjectNode()
+                    .put("type", "enqueue").put("seq", entry.seq).put("kind", kind.name())
+                    .put("key", entry.key).put("body", body);
+            durable = append(record);
+        }
+        // The journal completes appends in order, so entries join the queue in order.
+        return durable.thenApply(ignored -> {
+            synchronized (this) {
+                pending.addLast(entry);
+            }
+            scheduleFlush(0);
+            return entry;
+        });
+    }
+
+    public synchronized int getPendingCount() {
+        return unfinished;
+    }
+
+    /**
+     * Server id for a provisional id, or the id itself when it is not provisional.
+     */
+    public Integer resolveId(Integer id) {
+        if (id == null || id >= 0) {
+            return id;
+        }
+        return serverIds.get(id);
+    }
+
+    private synchronized void scheduleFlush(long delayMs) {
+        if (flushScheduled) {
+            return;
+        }
+        flushScheduled = true;
+        flusher.schedule(this::flush, delayMs, TimeUnit.MILLISECONDS);
+    }
+
+    private void flush() {
+        synchronized (this) {
+            flushScheduled = false;
+        }
+        while (true) {
+            List<Entry> run;
+            synchronized (this) {
+                if (pending.isEmpty()) {
+                    compactIfIdle();
+                    return;
+                }
+                run = new ArrayList<>(MAX_BATCH);
+                for (Entry entry : pending) {
+                    if (run.size() == MAX_BATCH) {
+                        break;
+                    }
+                    run.add(entry);
+                }
+            }
+
+            List<Entry> sent = new ArrayList<>();
+            List<BatchOperation> operations = new ArrayList<>();
+            Map<Integer, Integer> positions = new HashMap<>();
+            for (Entry entry : run) {
+                try {
+                    operations.add(toOperation(entry, positions));
+                } catch (IllegalStateException e) {
+                    reject(entry, e);
+                    continue;
+                }
+                positions.put(entry.getLocalId(), sent.size());
+                sent.add(entry);
+            }
+            if (sent.isEmpty()) {
+                continue;
+            }
+
+            // Every result is collected, so writes that landed are not resent
+            // when another write of the same run has to be retried.
+            List<CompletableFuture<String>> results = ApiService.sendBatchAsync(operations);
+            Throwable retryCause = null;
+            for (int i = 0; i < sent.size(); i++) {
+                Entry entry = sent.get(i);
+                try {
+                    finish(entry, results.get(i).get());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                } catch (ExecutionException e) {
+                    Throwable cause = ApiService.unwrap(e);
+                    Integer reference = referenceOf(entry);
+                    if (reference != null && rejected.contains(reference)) {
+                        reject(entry, dependsOnRejected(entry, reference));
+                    } else if (isRejection(cause)) {
+                        reject(entry, cause);
+                    } else if (retryCause == null) {
+                        retryCause = cause;
+                    }
+                }
+            }
+            if (retryCause != null) {
+                long delay;
+                synchronized (this) {
+                    delay = retryDelayMs;
+                    retryDelayMs = Math.min(retryDelayMs * 2, MAX_RETRY_MS);
+                }
+                System.err.println("ERROR sending outbox writes, retrying in " + delay + " ms: "
+                        + retryCause.getMessage());
+                scheduleFlush(delay);
+                return;
+            }
+        }
+    }
+
+    private void finish(Entry entry, String response) {
+        Integer serverId = readId(response);
+        ObjectNode record = JsonCodec.mapper().createObjectNode().put("type", "done").put("seq", entry.seq);
+        if (serverId != null) {
+            record.put("serverId", serverId);
+            serverIds.put(entry.getLocalId(), serverId);
+        }
+        entry.serverId = serverId;
+        CompletableFuture<Void> durable;
+        synchronized (this) {
+            durable = append(record);
+            pending.remove(entry);
+            unfinished--;
+            retryDelayMs = MIN_RETRY_MS;
+        }
+        awaitJournal(durable);
+        System.out.println("DEBUG: Outbox sent " + entry.kind + " #" + entry.getLocalId() + " -> " + serverId);
+
+        entry.result.complete(response);
+        for (Listener listener : listeners) {
+            listener.onFlushed(entry, response);
+        }
+    }
+
+    private void reject(Entry entry, Throwable error) {
+        System.err.println("ERROR: Outbox write #" + entry.seq + " (" + entry.kind + ") rejected: " + error.getMessage());
+        rejected.add(entry.getLocalId());
+        ObjectNode record = JsonCodec.mapper().createObjectNode()
+                .put("type", "failed").put("seq", entry.seq).put("error", String.valueOf(error.getMessage()));
+        CompletableFuture<Void> durable;
+        synchronized (this) {
+            durable = append(record);
+            pending.remove(entry);
+            unfinished--;
+        }
+        awaitJournal(durable);
+
+        entry.result.completeExceptionally(error);
+        for (Listener listener : listeners) {
+            listener.onRejected(entry, error);
+        }
+    }
+
+    /**
+     * Builds the request for an entry. A reference to a write earlier in the
+     * same run is bound in the batch; one to a write already sent is replaced
+     * with its server id.
+     */
+    private BatchOperation toOperation(Entry entry, Map<Integer, Integer> positions) {
+        return resolveReference(entry, positions).idempotencyKey(entry.key);
+    }
+
+    private BatchOperation resolveReference(Entry entry, Map<Integer, Integer> positions) {
+        Integer reference = referenceOf(entry);
+        if (reference == null || reference >= 0) {
+            return BatchOperation.post(entry.kind.path, entry.body);
+        }
+        Integer position = positions.get(reference);
+        if (position != null) {
+            return BatchOperation.post(entry.kind.path, entry.body).bindId(entry.kind.reference, position);
+        }
+        Integer serverId = serverIds.get(reference);
+        if (serverId == null) {
+            throw rejected.contains(reference)
+                    ? dependsOnRejected(entry, reference)
+                    : new IllegalStateException("Unknown provisional id " + entry.kind.reference + "=" + reference);
+        }
+        ObjectNode node = readBody(entry);
+        node.put(entry.kind.reference, serverId);
+        return BatchOperation.post(entry.kind.path, node.toString());
+    }
+
+    private static Integer referenceOf(Entry entry) {
+        if (entry.kind.reference == null) {
+            return null;
+        }
+        JsonNode reference = readBody(entry).get(entry.kind.reference);
+        return reference != null && reference.canConvertToInt() ? reference.asInt() : null;
+    }
+
+    private static IllegalStateException dependsOnRejected(Entry entry, Integer reference) {
+        return new IllegalStateException("Depends on a rejected write (" + entry.kind.reference + "=" + reference + ")");
+    }
+
+    private static ObjectNode readBody(Entry entry) {
+        try {
+            return (ObjectNode) JsonCodec.mapper().readTree(entry.body);
+        } catch (IOException | ClassCastException e) {
+            throw new IllegalStateException("Unreadable outbox entry: " + e.getMessage());
+        }
+    }
+
+    /**
+     * A 4xx answer means the server will never accept this write, except for
+     * timeouts, throttling and 424 (not applied because another write of the
+     * batch failed); anything else is worth retrying.
+     */
+    private static boolean isRejection(Throwable error) {
+        return ApiService.unwrap(error) instanceof ApiException failure
+                && failure.isClientError() && failure.getStatus() != 424;
+    }
+
+    private static Integer readId(String response) {
+        try {
+            JsonNode id = JsonCodec.mapper().readTree(response).get("id");
+            return id != null && id.canConvertToInt() ? id.asInt() : null;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private void compactIfIdle() {
+        if (unfinished == 0 && journalDirty && journal != null) {
+            journalDirty = false;
+            JournalWrite truncate = new JournalWrite(null);
+            journalQueue.add(truncate);
+        }
+    }
+
+    private CompletableFuture<Void> append(ObjectNode record) {
+        if (journal == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+        journalDirty = true;
+        JournalWrite write = new JournalWrite(record.toString() + "\n");
+        journalQueue.add(write);
+        return write.done;
+    }
+
+    private static void awaitJournal(CompletableFuture<Void> durable) {
+        try {
+            durable.join();
+        } catch (RuntimeException e) {
+            System.err.println("ERROR writing outbox journal: " + ApiService.unwrap(e).getMessage());
+        }
+    }
+
+    /**
+     * Journal writer loop: takes every append queued so far, writes them in one
+     * go and fsyncs once for the whole batch.
+     */
+    private void writeJournal() {
+        List<JournalWrite> batch = new ArrayList<>();
+        while (true) {
+            try {
+                batch.add(journalQueue.take());
+            } catch (InterruptedException e) {
+                return;
+            }
+            journalQueue.drainTo(batch);
+
+            List<JournalWrite> group = new ArrayList<>();
+            for (JournalWrite write : batch) {
+                if (write.isTruncate()) {
+                    commit(group);
+                    group.clear();
+                    try {
+                        journal.truncate(0);
+                        write.done.complete(null);
+                    } catch (IOException e) {
+                        write.done.completeExceptionally(e);
+                    }
+                } else {
+                    group.add(write);
+                }
+            }
+            commit(group);
+            batch.clear();
+        }
+    }
+
+    private void commit(List<JournalWrite> group) {
+        if (group.isEmpty()) {
+            return;
+        }
+        StringBuilder lines = new StringBuilder();
+        for (JournalWrite write : group) {
+            lines.append(write.line);
+        }
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(lines.toString().getBytes(StandardCharsets.UTF_8));
+            while (buffer.hasRemaining()) {
+                journal.write(buffer);
+            }
+            journal.force(false);
+            group.forEach(write -> write.done.complete(null));
+        } catch (IOException e) {
+            group.forEach(write -> write.done.completeExceptionally(e));
+        }
+    }
+
+    private void replay() throws IOException {
+        if (!Files.exists(file)) {
+            return;
+        }
+        Map<Long, Entry> open = new LinkedHashMap<>();
+        for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+            if (line.isBlank()) {
+                continue;
+            }
+            JsonNode record;
+            try {
+                record = JsonCodec.mapper().readTree(line);
+            } catch (IOException e) {
+                // A torn last line from a crash mid-append; everything before it is intact.
+                System.err.println("ERROR: skipping unreadable outbox journal line");
+                continue;
+            }
+            long seq = record.path("seq").asLong();
+            nextSeq = Math.max(nextSeq, seq + 1);
+            switch (record.path("type").asText()) {
+                case "enqueue":
+                    // A fresh key would let the server apply the write twice, so
+                    // an entry without one is as unusable as an unreadable line.
+                    String key = record.path("key").asText();
+                    if (key.isEmpty()) {
+                        System.err.println("ERROR: skipping outbox journal entry " + seq + " without an idempotency key");
+                        continue;
+                    }
+                    open.put(seq, new Entry(seq, Kind.valueOf(record.path("kind").asText()),
+                            record.path("body").asText(), key));
+                    break;
+                case "done":
+                    open.remove(seq);
+                    if (record.has("serverId")) {
+                        serverIds.put((int) -seq, record.get("serverId").asInt());
+                    }
+                    break;
+                case "failed":
+                    open.remove(seq);
+                    rejected.add((int) -seq);
+                    break;
+                default:
+                    break;
+            }
+        }
+        pending.addAll(open.values());
+        unfinished = open.size();
+        journalDirty = true;
+    }
+}
@@ -0,0 +1,168 @@
+package com.clinic.ui.service;
+
+import com.clinic.ui.model.PageDTO;
+import javafx.application.Platform;
+import javafx.collections.ObservableListBase;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+/**
+ * Virtual list for a TableView backed by a server-paged endpoint. Only the pages
+ * the table actually asks for (the visible viewport plus one page of read-ahead)
+ * are fetched; the least recently used pages are evicted once {@code maxPages}
+ * are held. Rows that are not loaded yet are represented by a shared placeholder.
+ * Must be used from the FX thread.
+ */
+public class PagedObservableList<T> extends ObservableListBase<T> {
+
+    @FunctionalInterface
+    public interface PageLoader<T> {
+        CompletableFuture<PageDTO<T>> load(int offset, int limit);
+    }
+
+    private final PageLoader<T> loader;
+    private final int pageSize;
+    private final T placeholder;
+    private final Map<Integer, List<T>> pages;
+    private final Map<Integer, CompletableFuture<PageDTO<T>>> loading = new HashMap<>();
+
+    private int size;
+    private int generation;
+    private Consumer<Throwable> errorHandler = error -> {};
+
+    public PagedObservableList(PageLoader<T> loader, int pageSize, int maxPages, T placeholder) {
+        this.loader = loader;
+        this.pageSize = pageSize;
+        this.placeholder = placeholder;
+        this.pages = new LinkedHashMap<>(maxPages + 1, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, List<T>> eldest) {
+                return size() > maxPages;
+            }
+        };
+    }
+
+    public void setErrorHandler(Consumer<Throwable> errorHandler) {
+        if (errorHandler != null) {
+            this.errorHandler = errorHandler;
+        }
+    }
+
+    /**
+     * Drops every cached page and fetches the first one. The returned future
+     * completes with the total row count reported by the server.
+     */
+    public CompletableFuture<Integer> reload() {
+        cancel();
+        int expected = ++generation;
+        CompletableFuture<PageDTO<T>> request = loader.load(0, pageSize);
+        loading.put(0, request);
+
+        CompletableFuture<Integer> result = new CompletableFuture<>();
+        request.whenCompleteAsync((page, error) -> {
+            if (expected != generation) {
+                result.cancel(false);
+                return;
+            }
+            loading.remove(0);
+            if (error != null) {
+                result.completeExceptionally(ApiService.unwrap(error));
+                return;
+            }
+            pages.clear();
+            pages.put(0, page.getItems());
+            resize(page.getTotal());
+            result.complete(page.getTotal());
+        }, Platform::runLater);
+        return result;
+    }
+
+    public void cancel() {
+        for (CompletableFuture<PageDTO<T>> request : loading.values()) {
+            request.cancel(true);
+        }
+        loading.clear();
+    }
+
+    public boolean isPlaceholder(T item) {
+        return item == placeholder;
+    }
+
+    public int getLoadedPageCount() {
+        return pages.size();
+    }
+
+    @Override
+    public T get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException(index);
+        }
+        int pageIndex = index / pageSize;
+        List<T> page = pages.get(pageIndex);
+        if (page == null) {
+            requestPage(pageIndex);
+            requestPage(pageIndex + 1);
+            return placeholder;
+        }
+        int offset = index - pageIndex * pageSize;
+        return offset < page.size() ? page.get(offset) : placeholder;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    private void requestPage(int pageIndex) {
+        if (pageIndex * pageSize >= size || pages.containsKey(pageIndex) || loading.containsKey(pageIndex)) {
+            return;
+        }
+
+        int expected = generation;
+        CompletableFuture<PageDTO<T>> request = loader.load(pageIndex * pageSize, pageSize);
+        loading.put(pageIndex, request);
+        request.whenCompleteAsync((page, error) -> {
+            if (expected != generation) {
+                return;
+            }
+            loading.remove(pageIndex);
+            if (error != null) {
+                if (!ApiService.isCancellation(error)) {
+                    errorHandler.accept(ApiService.unwrap(error));
+                }
+                return;
+            }
+            pages.put(pageIndex, page.getItems());
+            if (page.getTotal() != size) {
+                resize(page.getTotal());
+            } else {
+                firePageLoaded(pageIndex, page.getItems().size());
+            }
+        }, Platform::runLater);
+    }
+
+    private void firePageLoaded(int pageIndex, int loaded) {
+        int from = pageIndex * pageSize;
+        int to = Math.min(from + loaded, size);
+        if (from >= to) {
+            return;
+        }
+        beginChange();
+        nextReplace(from, to, Collections.nCopies(to - from, placeholder));
+        endChange();
+    }
+
+    private void resize(int newSize) {
+        int oldSize = size;
+        size = newSize;
+        beginChange();
+        nextReplace(0, newSize, Collections.nCopies(oldSize, placeholder));
+        endChange();
+    }
+}
@@ -0,0 +1,133 @@
+package com.clinic.ui.service;
+
+import com.clinic.ui.model.PatientDTO;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Process-wide patient entity cache shared by every view, indexed by id and by
+ * social id. Entries are replaced only by a copy that is at least as recent by
+ * {@code updatedAt}, and the least recently used patient is evicted once the
+ * configured capacity is reached.
+ */
+public class PatientCache {
+    private static final PatientCache INSTANCE = new PatientCache(ApiService.getConfig().getPatientCacheSize());
+
+    private final int capacity;
+    private final Map<Integer, PatientDTO> byId;
+    private final Map<String, Integer> idBySocialId = new HashMap<>();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    PatientCache(int capacity) {
+        this.capacity = capacity;
+        this.byId = new LinkedHashMap<>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, PatientDTO> eldest) {
+                if (size() <= PatientCache.this.capacity) {
+                    return false;
+                }
+                unlinkSocialId(eldest.getValue());
+                evictions.incrementAndGet();
+                return true;
+            }
+        };
+    }
+
+    public static PatientCache getInstance() {
+        return INSTANCE;
+    }
+
+    public synchronized PatientDTO getById(Integer id) {
+        return record(id == null ? null : byId.get(id));
+    }
+
+    public synchronized PatientDTO getBySocialId(String socialId) {
+        Integer id = socialId == null ? null : idBySocialId.get(socialId);
+        return record(id == null ? null : byId.get(id));
+    }
+
+    /**
+     * Caches {@code patient} unless a newer version is already held, and returns
+     * whichever copy is now current.
+     */
+    public synchronized PatientDTO put(PatientDTO patient) {
+        if (patient == null || patient.getId() == null || capacity <= 0) {
+            return patient;
+        }
+        PatientDTO existing = byId.get(patient.getId());
+        if (existing != null) {
+            if (isNewer(existing.getUpdatedAt(), patient.getUpdatedAt())) {
+                return existing;
+            }
+            unlinkSocialId(existing);
+        }
+        byId.put(patient.getId(), patient);
+        if (patient.getSocialId() != null) {
+            idBySocialId.put(patient.getSocialId(), patient.getId());
+        }
+        return patient;
+    }
+
+    public synchronized void putAll(Collection<PatientDTO> patients) {
+        for (PatientDTO patient : patients) {
+            put(patient);
+        }
+    }
+
+    public synchronized void invalidate(Integer id) {
+        PatientDTO removed = id == null ? null : byId.remove(id);
+        if (removed != null) {
+            unlinkSocialId(removed);
+        }
+    }
+
+    public synchronized int size() {
+        return byId.size();
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    public double getHitRate() {
+        long total = hits.get() + misses.get();
+        return total == 0 ? 0 : (double) hits.get() / total;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("PatientCache{entries=%d/%d, hits=%d, misses=%d, hitRate=%.2f, evictions=%d}",
+                size(), capacity, getHits(), getMisses(), getHitRate(), getEvictions());
+    }
+
+    private PatientDTO record(PatientDTO patient) {
+        (patient == null ? misses : hits).incrementAndGet();
+        return patient;
+    }
+
+    private void unlinkSocialId(PatientDTO patient) {
+        if (patient.getSocialId() != null) {
+            idBySocialId.remove(patient.getSocialId(), patient.getId());
+        }
+    }
+
+    private static boolean isNewer(LocalDateTime held, LocalDateTime incoming) {
+        return held != null && incoming != null && held.isAfter(incoming);
+    }
+}
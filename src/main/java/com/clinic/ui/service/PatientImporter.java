@@ -0,0 +1,707 @@
+package com.clinic.ui.service;
+
+import com.clinic.ui.model.PatientDTO;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.time.format.ResolverStyle;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Creates patients from a CSV file. Rows are parsed as the file is read, so
+ * its size does not matter; each row is checked with {@link PatientRules},
+ * rows whose social id already exists are skipped, and the rest are posted by
+ * virtual threads with at most {@code concurrency} requests in flight.
+ *
+ * Progress is saved to {@code <file>.checkpoint} as the last row up to which
+ * everything has been handled. An import that is cancelled or loses the
+ * backend continues from there on the next run; rows after the checkpoint that
+ * were already created are caught by the social-id check. Refused rows are
+ * copied to {@code <file>.rejected.csv} with the reason.
+ */
+public class PatientImporter {
+    private static final int CHECKPOINT_EVERY_ROWS = 500;
+    private static final long PROGRESS_INTERVAL_NANOS = 100_000_000;
+    private static final List<DateTimeFormatter> DATE_FORMATS = List.of(
+            DateTimeFormatter.ISO_LOCAL_DATE,
+            DateTimeFormatter.ofPattern("d/M/uuuu").withResolverStyle(ResolverStyle.STRICT));
+    private static final Map<String, String> COLUMNS = Map.ofEntries(
+            Map.entry("socialid", "socialId"), Map.entry("cccd", "socialId"), Map.entry("cmnd", "socialId"),
+            Map.entry("sodinhdanh", "socialId"),
+            Map.entry("fullname", "fullName"), Map.entry("name", "fullName"), Map.entry("hovaten", "fullName"),
+            Map.entry("hoten", "fullName"),
+            Map.entry("dob", "dob"), Map.entry("dateofbirth", "dob"), Map.entry("ngaysinh", "dob"),
+            Map.entry("gender", "gender"), Map.entry("gioitinh", "gender"),
+            Map.entry("phone", "phone"), Map.entry("dienthoai", "phone"), Map.entry("sodienthoai", "phone"),
+            Map.entry("sdt", "phone"),
+            Map.entry("email", "email"),
+            Map.entry("address", "address"), Map.entry("diachi", "address"));
+
+    public static final class Progress {
+        private final long rows;
+        private final long created;
+        private final long skipped;
+        private final long failed;
+        private final long bytesRead;
+        private final long totalBytes;
+
+        private Progress(long rows, long created, long skipped, long failed, long bytesRead, long totalBytes) {
+            this.rows = rows;
+            this.created = created;
+            this.skipped = skipped;
+            this.failed = failed;
+            this.bytesRead = bytesRead;
+            this.totalBytes = totalBytes;
+        }
+
+        public long getRows() {
+            return rows;
+        }
+
+        public long getCreated() {
+            return created;
+        }
+
+        public long getSkipped() {
+            return skipped;
+        }
+
+        public long getFailed() {
+            return failed;
+        }
+
+        public double getFraction() {
+            return totalBytes == 0 ? 1 : Math.min(1, (double) bytesRead / totalBytes);
+        }
+    }
+
+    public static final class Summary {
+        private final long rows;
+        private final long created;
+        private final long skipped;
+        private final long failed;
+        private final long resumedAfterRow;
+        private final Duration elapsed;
+        private final String stoppedBecause;
+        private final Path rejectsFile;
+
+        private Summary(long rows, long created, long skipped, long failed, long resumedAfterRow,
+                        Duration elapsed, String stoppedBecause, Path rejectsFile) {
+            this.rows = rows;
+            this.created = created;
+            this.skipped = skipped;
+            this.failed = failed;
+            this.resumedAfterRow = resumedAfterRow;
+            this.elapsed = elapsed;
+            this.stoppedBecause = stoppedBecause;
+            this.rejectsFile = rejectsFile;
+        }
+
+        public long getRows() {
+            return rows;
+        }
+
+        public long getCreated() {
+            return created;
+        }
+
+        public long getSkipped() {
+            return skipped;
+        }
+
+        public long getFailed() {
+            return failed;
+        }
+
+        /**
+         * Row the import continued after, or 0 when it started from the top.
+         */
+        public long getResumedAfterRow() {
+            return resumedAfterRow;
+        }
+
+        public Duration getElapsed() {
+            return elapsed;
+        }
+
+        public double getCreatedPerSecond() {
+            return elapsed.isZero() ? created : created * 1_000.0 / Math.max(1, elapsed.toMillis());
+        }
+
+        /**
+         * Why the import stopped before the end of the file, or {@code null}
+         * when it finished. A stopped import can be resumed.
+         */
+        public String getStoppedBecause() {
+            return stoppedBecause;
+        }
+
+        /**
+         * File listing the refused rows, or {@code null} when there were none.
+         */
+        public Path getRejectsFile() {
+            return rejectsFile;
+        }
+    }
+
+    private final Path source;
+    private final Path checkpointFile;
+    private final Path rejectsFile;
+    private final int concurrency;
+
+    private final AtomicLong created = new AtomicLong();
+    private final AtomicLong skipped = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final TreeSet<Long> finishedAhead = new TreeSet<>();
+    // Social ids the server holds. An id is only added once its upload
+    // succeeded, so a later row with the same id is still sent if the server
+    // refused the earlier one; that row waits for the upload in flight first.
+    private final Set<String> knownSocialIds = ConcurrentHashMap.newKeySet();
+    private final Map<String, CompletableFuture<Void>> uploadingSocialIds = new ConcurrentHashMap<>();
+    // Rows past the checkpoint watermark that an earlier run already finished.
+    private final TreeSet<Long> doneBefore = new TreeSet<>();
+    private long resumedAfter;
+    private long finishedUpTo;
+    private BufferedWriter rejects;
+    private List<String> header;
+    private volatile boolean cancelled;
+    private volatile String stoppedBecause;
+
+    public PatientImporter(Path source, int concurrency) {
+        this.source = source;
+        this.checkpointFile = source.resolveSibling(source.getFileName() + ".checkpoint");
+        this.rejectsFile = source.resolveSibling(source.getFileName() + ".rejected.csv");
+        this.concurrency = Math.max(1, concurrency);
+    }
+
+    /**
+     * Runs the import on a background thread. {@code onProgress} is called from
+     * that thread, at most every 100 ms.
+     */
+    public CompletableFuture<Summary> start(Consumer<Progress> onProgress) {
+        CompletableFuture<Summary> result = new CompletableFuture<>();
+        Thread thread = new Thread(() -> {
+            try {
+                result.complete(run(onProgress));
+            } catch (Throwable e) {
+                result.completeExceptionally(e);
+            }
+        }, "patient-import");
+        thread.setDaemon(true);
+        thread.start();
+        return result;
+    }
+
+    /**
+     * Stops reading new rows; uploads already started are finished and the
+     * checkpoint is saved.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    private Summary run(Consumer<Progress> onProgress) throws IOException, InterruptedException {
+        long started = System.nanoTime();
+        long totalBytes = Files.size(source);
+        knownSocialIds.addAll(loadKnownSocialIds());
+        long resumeAfter = readCheckpoint();
+        resumedAfter = resumeAfter;
+        finishedUpTo = resumeAfter;
+        if (resumeAfter > 0) {
+            System.out.println("DEBUG: Resuming import of " + source + " after row " + resumeAfter);
+        }
+
+        Semaphore window = new Semaphore(concurrency);
+        ExecutorService uploads = Executors.newVirtualThreadPerTaskExecutor();
+        long rows = 0;
+        long lastProgress = 0;
+        try (CountingInputStream counter = new CountingInputStream(Files.newInputStream(source));
+             BufferedReader reader = new BufferedReader(new InputStreamReader(counter, StandardCharsets.UTF_8), 64 * 1024)) {
+            CsvReader csv = new CsvReader(reader, detectDelimiter(reader));
+            header = csv.next();
+            if (header == null) {
+                throw new IOException("Tệp CSV trống");
+            }
+            header.set(0, header.get(0).replace("\uFEFF", ""));
+            Map<String, Integer> columns = mapColumns(header);
+
+            while (!cancelled && stoppedBecause == null) {
+                List<String> fields = csv.next();
+                if (fields == null) {
+                    break;
+                }
+                long row = ++rows;
+                if (row <= resumeAfter) {
+                    continue;
+                }
+                if (doneBefore.remove(row)) {
+                    finished(row);
+                    continue;
+                }
+                if (fields.size() == 1 && fields.get(0).isBlank()) {
+                    finished(row);
+                    continue;
+                }
+
+                PatientDTO patient = toPatient(fields, columns);
+                String problem = patient == null
+                        ? "Ngày sinh không hợp lệ: " + field(fields, columns, "dob")
+                        : PatientRules.validate(patient);
+                if (problem != null) {
+                    reject(row, fields, problem);
+                } else if (patient.getSocialId() != null && knownSocialIds.contains(patient.getSocialId())) {
+                    skipped.incrementAndGet();
+                    finished(row);
+                } else {
+                    window.acquire();
+                    String socialId = patient.getSocialId();
+                    CompletableFuture<Void> done = new CompletableFuture<>();
+                    CompletableFuture<Void> earlier = socialId == null ? null : uploadingSocialIds.put(socialId, done);
+                    uploads.execute(() -> {
+                        try {
+                            if (earlier != null) {
+                                earlier.join();
+                            }
+                            if (socialId != null && knownSocialIds.contains(socialId)) {
+                                skipped.incrementAndGet();
+                                finished(row);
+                            } else {
+                                upload(row, fields, patient);
+                            }
+                        } finally {
+                            if (socialId != null) {
+                                uploadingSocialIds.remove(socialId, done);
+                            }
+                            done.complete(null);
+                            window.release();
+                        }
+                    });
+                }
+
+                if (row % CHECKPOINT_EVERY_ROWS == 0) {
+                    writeCheckpoint();
+                }
+                long now = System.nanoTime();
+                if (now - lastProgress > PROGRESS_INTERVAL_NANOS) {
+                    lastProgress = now;
+                    onProgress.accept(progress(rows, counter.count, totalBytes));
+                }
+            }
+        } finally {
+            uploads.shutdown();
+            uploads.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+            closeRejects();
+        }
+
+        if (cancelled && stoppedBecause == null) {
+            stoppedBecause = "Đã hủy";
+        }
+        if (stoppedBecause == null) {
+            Files.deleteIfExists(checkpointFile);
+        } else {
+            writeCheckpoint();
+        }
+        onProgress.accept(progress(rows, totalBytes, totalBytes));
+
+        Summary summary = new Summary(rows, created.get(), skipped.get(), failed.get(), resumeAfter,
+                Duration.ofNanos(System.nanoTime() - started), stoppedBecause,
+                failed.get() > 0 ? rejectsFile : null);
+        System.out.println(String.format("DEBUG: Imported %s: %d created, %d skipped, %d rejected in %d ms (%.1f patients/s)%s",
+                source.getFileName(), summary.getCreated(), summary.getSkipped(), summary.getFailed(),
+                summary.getElapsed().toMillis(), summary.getCreatedPerSecond(),
+                stoppedBecause == null ? "" : ", stopped: " + stoppedBecause));
+        return summary;
+    }
+
+    private void upload(long row, List<String> fields, PatientDTO patient) {
+        try {
+            PatientDTO saved = JsonCodec.read(ApiService.createPatient(JsonCodec.write(patient)), PatientDTO.class);
+            PatientLookup.getInstance().remember(saved);
+            PatientSearchIndex.getInstance().add(saved);
+            if (patient.getSocialId() != null) {
+                knownSocialIds.add(patient.getSocialId());
+            }
+            created.incrementAndGet();
+            finished(row);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            stoppedBecause = "Đã hủy";
+        } catch (IOException | RuntimeException e) {
+            if (ApiService.unwrap(e) instanceof ApiException failure && failure.isClientError()) {
+                reject(row, fields, String.valueOf(e.getMessage()));
+            } else if (stoppedBecause == null) {
+                // Not the row's fault; stop here and let a later run pick it up again.
+                stoppedBecause = String.valueOf(ApiService.unwrap(e).getMessage());
+            }
+        }
+    }
+
+    private Set<String> loadKnownSocialIds() throws IOException {
+        PatientSearchIndex index = PatientSearchIndex.getInstance();
+        try {
+            index.load().join();
+        } catch (RuntimeException e) {
+            if (!index.isReady()) {
+                throw new IOException("Không tải được danh sách bệnh nhân để kiểm tra trùng: "
+                        + ApiService.unwrap(e).getMessage());
+            }
+        }
+        Set<String> known = new HashSet<>();
+        for (PatientDTO patient : index.getPatients()) {
+            if (patient.getSocialId() != null) {
+                known.add(patient.getSocialId());
+            }
+        }
+        return known;
+    }
+
+    private static PatientDTO toPatient(List<String> fields, Map<String, Integer> columns) {
+        PatientDTO patient = new PatientDTO();
+        patient.setSocialId(field(fields, columns, "socialId"));
+        patient.setFullName(field(fields, columns, "fullName"));
+        patient.setGender(PatientRules.toGenderCode(field(fields, columns, "gender")));
+        patient.setPhone(field(fields, columns, "phone"));
+        patient.setEmail(field(fields, columns, "email"));
+        patient.setAddress(field(fields, columns, "address"));
+        String dob = field(fields, columns, "dob");
+        if (dob != null) {
+            patient.setDob(parseDate(dob));
+            if (patient.getDob() == null) {
+                return null;
+            }
+        }
+        return patient;
+    }
+
+    private static String field(List<String> fields, Map<String, Integer> columns, String name) {
+        Integer column = columns.get(name);
+        if (column == null || column >= fields.size()) {
+            return null;
+        }
+        String value = fields.get(column).trim();
+        return value.isEmpty() ? null : value;
+    }
+
+    private static LocalDate parseDate(String text) {
+        for (DateTimeFormatter format : DATE_FORMATS) {
+            try {
+                return LocalDate.parse(text, format);
+            } catch (DateTimeParseException ignored) {
+                // try the next format
+            }
+        }
+        return null;
+    }
+
+    private static Map<String, Integer> mapColumns(List<String> header) throws IOException {
+        Map<String, Integer> columns = new HashMap<>();
+        for (int i = 0; i < header.size(); i++) {
+            String key = PatientSearchIndex.fold(header.get(i)).replaceAll("[^a-z0-9]", "");
+            String column = COLUMNS.get(key);
+            if (column != null) {
+                columns.putIfAbsent(column, i);
+            }
+        }
+        if (!columns.containsKey("fullName")) {
+            throw new IOException("Tệp CSV thiếu cột họ và tên (fullName)");
+        }
+        return columns;
+    }
+
+    /**
+     * Spreadsheets saved with a Vietnamese locale use ';' instead of ','.
+     */
+    private static char detectDelimiter(BufferedReader reader) throws IOException {
+        reader.mark(8 * 1024);
+        String first = reader.readLine();
+        reader.reset();
+        if (first == null) {
+            return ',';
+        }
+        return first.chars().filter(c -> c == ';').count() > first.chars().filter(c -> c == ',').count() ? ';' : ',';
+    }
+
+    private Progress progress(long rows, long bytesRead, long totalBytes) {
+        return new Progress(rows, created.get(), skipped.get(), failed.get(), bytesRead, totalBytes);
+    }
+
+    private synchronized void finished(long row) {
+        if (row != finishedUpTo + 1) {
+            finishedAhead.add(row);
+            return;
+        }
+        finishedUpTo = row;
+        while (!finishedAhead.isEmpty() && finishedAhead.first() == finishedUpTo + 1) {
+            finishedUpTo = finishedAhead.pollFirst();
+        }
+    }
+
+    private synchronized void reject(long row, List<String> fields, String reason) {
+        failed.incrementAndGet();
+        try {
+            if (rejects == null) {
+                boolean fresh = resumedAfter == 0 || !Files.exists(rejectsFile);
+                rejects = Files.newBufferedWriter(rejectsFile, StandardCharsets.UTF_8, StandardOpenOption.CREATE,
+                        fresh ? StandardOpenOption.TRUNCATE_EXISTING : StandardOpenOption.APPEND);
+                if (fresh) {
+                    List<String> columns = new ArrayList<>(List.of("row", "error"));
+                    columns.addAll(header);
+                    writeCsvLine(rejects, columns);
+                }
+            }
+            List<String> line = new ArrayList<>(List.of(String.valueOf(row), reason));
+            line.addAll(fields);
+            writeCsvLine(rejects, line);
+        } catch (IOException e) {
+            System.err.println("ERROR writing " + rejectsFile + ": " + e.getMessage());
+        }
+        finished(row);
+    }
+
+    private synchronized void closeRejects() throws IOException {
+        if (rejects != null) {
+            rejects.close();
+            rejects = null;
+        }
+    }
+
+    private static void writeCsvLine(Writer out, List<String> values) throws IOException {
+        for (int i = 0; i < values.size(); i++) {
+            if (i > 0) {
+                out.write(',');
+            }
+            String value = values.get(i) == null ? "" : values.get(i);
+            if (value.indexOf(',') >= 0 || value.indexOf('"') >= 0 || value.indexOf('\n') >= 0) {
+                out.write('"');
+                out.write(value.replace("\"", "\"\""));
+                out.write('"');
+            } else {
+                out.write(value);
+            }
+        }
+        out.write('\n');
+    }
+
+    private long readCheckpoint() {
+        if (!Files.isRegularFile(checkpointFile)) {
+            return 0;
+        }
+        Properties checkpoint = new Properties();
+        try (InputStream in = Files.newInputStream(checkpointFile)) {
+            checkpoint.load(in);
+            if (!String.valueOf(Files.size(source)).equals(checkpoint.getProperty("size"))
+                    || !String.valueOf(Files.getLastModifiedTime(source).toMillis()).equals(checkpoint.getProperty("modified"))) {
+                System.out.println("DEBUG: " + source + " changed since the last import, starting over");
+                return 0;
+            }
+            long row = Long.parseLong(checkpoint.getProperty("row", "0"));
+            doneBefore.addAll(parseRows(checkpoint.getProperty("ahead", "")));
+            return row;
+        } catch (IOException | NumberFormatException e) {
+            System.err.println("ERROR reading " + checkpointFile + ": " + e.getMessage());
+            doneBefore.clear();
+            return 0;
+        }
+    }
+
+    private void writeCheckpoint() {
+        Properties checkpoint = new Properties();
+        try {
+            checkpoint.setProperty("size", String.valueOf(Files.size(source)));
+            checkpoint.setProperty("modified", String.valueOf(Files.getLastModifiedTime(source).toMillis()));
+            synchronized (this) {
+                checkpoint.setProperty("row", String.valueOf(finishedUpTo));
+                // Rows finished out of order would otherwise be uploaded or
+                // rejected a second time on resume.
+                TreeSet<Long> ahead = new TreeSet<>(finishedAhead);
+                ahead.addAll(doneBefore);
+                checkpoint.setProperty("ahead", formatRows(ahead));
+            }
+            Path temp = checkpointFile.resolveSibling(checkpointFile.getFileName() + ".tmp");
+            try (Writer out = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+                checkpoint.store(out, "Patient import progress for " + source.getFileName());
+            }
+            Files.move(temp, checkpointFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            System.err.println("ERROR writing " + checkpointFile + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Writes rows as comma-separated ranges, e.g. "7-9,12".
+     */
+    private static String formatRows(TreeSet<Long> rows) {
+        StringBuilder out = new StringBuilder();
+        Long start = null;
+        long end = 0;
+        for (long row : rows) {
+            if (start != null && row == end + 1) {
+                end = row;
+                continue;
+            }
+            appendRange(out, start, end);
+            start = row;
+            end = row;
+        }
+        appendRange(out, start, end);
+        return out.toString();
+    }
+
+    private static void appendRange(StringBuilder out, Long start, long end) {
+        if (start == null) {
+            return;
+        }
+        if (out.length() > 0) {
+            out.append(',');
+        }
+        out.append(start);
+        if (end > start) {
+            out.append('-').append(end);
+        }
+    }
+
+    private static List<Long> parseRows(String text) {
+        List<Long> rows = new ArrayList<>();
+        for (String range : text.split(",")) {
+            if (range.isBlank()) {
+                continue;
+            }
+            int dash = range.indexOf('-');
+            long start = Long.parseLong(range.substring(0, dash < 0 ? range.length() : dash).trim());
+            long end = dash < 0 ? start : Long.parseLong(range.substring(dash + 1).trim());
+            for (long row = start; row <= end; row++) {
+                rows.add(row);
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * Minimal RFC 4180 reader: quoted fields may contain the delimiter, doubled
+     * quotes and line breaks.
+     */
+    private static final class CsvReader {
+        private final Reader in;
+        private final char delimiter;
+        private int pending = -2;
+
+        CsvReader(Reader in, char delimiter) {
+            this.in = in;
+            this.delimiter = delimiter;
+        }
+
+        List<String> next() throws IOException {
+            int c = read();
+            if (c == -1) {
+                return null;
+            }
+            List<String> fields = new ArrayList<>();
+            StringBuilder field = new StringBuilder();
+            boolean quoted = false;
+            while (true) {
+                if (quoted) {
+                    if (c == -1) {
+                        break;
+                    } else if (c == '"') {
+                        int following = read();
+                        if (following == '"') {
+                            field.append('"');
+                        } else {
+                            quoted = false;
+                            unread(following);
+                        }
+                    } else {
+                        field.append((char) c);
+                    }
+                } else if (c == '"' && field.length() == 0) {
+                    quoted = true;
+                } else if (c == delimiter) {
+                    fields.add(field.toString());
+                    field.setLength(0);
+                } else if (c == '\n' || c == -1) {
+                    break;
+                } else if (c == '\r') {
+                    int following = read();
+                    if (following != '\n') {
+                        unread(following);
+                    }
+                    break;
+                } else {
+                    field.append((char) c);
+                }
+                c = read();
+            }
+            fields.add(field.toString());
+            return fields;
+        }
+
+        private int read() throws IOException {
+            if (pending != -2) {
+                int c = pending;
+                pending = -2;
+                return c;
+            }
+            return in.read();
+        }
+
+        private void unread(int c) {
+            pending = c;
+        }
+    }
+
+    private static final class CountingInputStream extends FilterInputStream {
+        private volatile long count;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                count++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int n = super.read(buffer, offset, length);
+            if (n > 0) {
+                count += n;
+            }
+            return n;
+        }
+    }
+}
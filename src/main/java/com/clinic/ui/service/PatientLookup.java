@@ -0,0 +1,157 @@
+package com.clinic.ui.service;
+
+import com.clinic.ui.model.PatientDTO;
+
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Patient lookups and writes backed by the shared {@link PatientCache}. A
+ * social-id miss completes with {@code null} instead of failing, and is
+ * remembered for a short while so retyping or re-checking an unknown id costs
+ * no round trip.
+ */
+public class PatientLookup {
+    private static final Duration NEGATIVE_TTL = Duration.ofSeconds(30);
+
+    private static final PatientLookup INSTANCE = new PatientLookup(NEGATIVE_TTL);
+
+    private final PatientCache cache = PatientCache.getInstance();
+    private final long negativeTtlNanos;
+    private final Map<String, Long> misses = new ConcurrentHashMap<>();
+    private final Map<String, PatientDTO> provisional = new ConcurrentHashMap<>();
+
+    PatientLookup(Duration negativeTtl) {
+        this.negativeTtlNanos = negativeTtl.toNanos();
+        Outbox.getInstance().addListener(new Outbox.Listener() {
+            @Override
+            public void onFlushed(Outbox.Entry entry, String response) {
+                if (entry.getKind() == Outbox.Kind.PATIENT) {
+                    reconcile(entry.getLocalId(), JsonCodec.read(response, PatientDTO.class));
+                }
+            }
+
+            @Override
+            public void onRejected(Outbox.Entry entry, Throwable error) {
+                if (entry.getKind() == Outbox.Kind.PATIENT) {
+                    reconcile(entry.getLocalId(), null);
+                }
+            }
+        });
+    }
+
+    public static PatientLookup getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Completes with the patient, or {@code null} when no patient has this id.
+     * Cancelling the returned future cancels the request.
+     */
+    public CompletableFuture<PatientDTO> findBySocialId(String socialId) {
+        PatientDTO unsent = provisional.get(socialId);
+        if (unsent != null) {
+            return CompletableFuture.completedFuture(unsent);
+        }
+        PatientDTO cached = cache.getBySocialId(socialId);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached);
+        }
+        Long missedAt = misses.get(socialId);
+        if (missedAt != null) {
+            if (System.nanoTime() - missedAt < negativeTtlNanos) {
+                return CompletableFuture.completedFuture(null);
+            }
+            misses.remove(socialId, missedAt);
+        }
+
+        CompletableFuture<String> request = ApiService.getPatientBySocialIdAsync(socialId);
+        CompletableFuture<PatientDTO> result = request.handle((json, error) -> {
+            if (error == null) {
+                return cache.put(JsonCodec.read(json, PatientDTO.class));
+            }
+            Throwable cause = ApiService.unwrap(error);
+            if (ApiService.isNotFound(cause)) {
+                misses.put(socialId, System.nanoTime());
+                return null;
+            }
+            throw new CompletionException(cause);
+        });
+        return cancelling(result, request);
+    }
+
+    public CompletableFuture<PatientDTO> findById(Integer id) {
+        PatientDTO cached = cache.getById(id);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached);
+        }
+        CompletableFuture<String> request = ApiService.getPatientByIdAsync(id);
+        return cancelling(request.thenApply(json -> cache.put(JsonCodec.read(json, PatientDTO.class))), request);
+    }
+
+    /**
+     * Queues the new patient in the {@link Outbox}. Once the write is durable the
+     * patient carries its provisional id and can be found by social id and in
+     * the search index; the entry's result completes when the server has it.
+     */
+    public CompletableFuture<Outbox.Entry> createPatient(PatientDTO patient) {
+        return Outbox.getInstance().enqueue(Outbox.Kind.PATIENT, patient).thenApply(entry -> {
+            patient.setId(entry.getLocalId());
+            if (patient.getSocialId() != null) {
+                misses.remove(patient.getSocialId());
+                provisional.put(patient.getSocialId(), patient);
+            }
+            PatientSearchIndex.getInstance().add(patient);
+            return entry;
+        });
+    }
+
+    public CompletableFuture<PatientDTO> updatePatient(Integer id, PatientDTO patient) {
+        String body;
+        try {
+            body = JsonCodec.write(patient);
+        } catch (UncheckedIOException e) {
+            return CompletableFuture.failedFuture(e.getCause());
+        }
+        CompletableFuture<String> request = ApiService.updatePatientAsync(id, body);
+        return cancelling(request.thenApply(json -> remember(JsonCodec.read(json, PatientDTO.class))), request);
+    }
+
+    /**
+     * Caches a patient the server just returned and drops any cached miss for
+     * its social id.
+     */
+    public PatientDTO remember(PatientDTO patient) {
+        if (patient != null && patient.getSocialId() != null) {
+            misses.remove(patient.getSocialId());
+        }
+        return cache.put(patient);
+    }
+
+    /**
+     * Swaps a provisional patient for the one the server created, or drops it
+     * when the server refused it.
+     */
+    private void reconcile(int localId, PatientDTO saved) {
+        provisional.values().removeIf(patient -> patient.getId() != null && patient.getId() == localId);
+        PatientSearchIndex index = PatientSearchIndex.getInstance();
+        index.remove(localId);
+        if (saved != null) {
+            remember(saved);
+            index.add(saved);
+        }
+    }
+
+    private static <T> CompletableFuture<T> cancelling(CompletableFuture<T> result, CompletableFuture<?> request) {
+        result.whenComplete((value, error) -> {
+            if (result.isCancelled()) {
+                request.cancel(true);
+            }
+        });
+        return result;
+    }
+}
@@ -0,0 +1,73 @@
+package com.clinic.ui.service;
+
+import com.clinic.ui.model.PatientDTO;
+
+import java.util.List;
+
+/**
+ * Validation and gender-code mapping shared by the intake form and the CSV
+ * import, so both accept exactly the same patients.
+ */
+public final class PatientRules {
+    public static final List<String> GENDER_LABELS = List.of("Nam", "Nữ", "Khác");
+    private static final List<String> GENDER_CODES = List.of("MALE", "FEMALE", "OTHER");
+
+    private PatientRules() {
+    }
+
+    /**
+     * Returns the first problem with the patient as a user-facing message, or
+     * {@code null} when it can be saved.
+     */
+    public static String validate(PatientDTO patient) {
+        if (patient.getFullName() == null || patient.getFullName().trim().isEmpty()) {
+            return "Vui lòng nhập họ và tên";
+        }
+        if (patient.getDob() == null) {
+            return "Vui lòng chọn ngày sinh";
+        }
+        if (patient.getGender() == null) {
+            return "Vui lòng chọn giới tính";
+        }
+        if (!GENDER_CODES.contains(patient.getGender())) {
+            return "Giới tính không hợp lệ: " + patient.getGender();
+        }
+        return null;
+    }
+
+    public static String toGenderLabel(String code) {
+        if (code == null) {
+            return null;
+        }
+        switch (code) {
+            case "MALE":
+                return "Nam";
+            case "FEMALE":
+                return "Nữ";
+            case "OTHER":
+                return "Khác";
+            default:
+                return code;
+        }
+    }
+
+    /**
+     * Maps a label to its API code. Codes are passed through unchanged, so
+     * either form is accepted.
+     */
+    public static String toGenderCode(String label) {
+        if (label == null) {
+            return null;
+        }
+        switch (label) {
+            case "Nam":
+                return "MALE";
+            case "Nữ":
+                return "FEMALE";
+            case "Khác":
+                return "OTHER";
+            default:
+                return label;
+        }
+    }
+}
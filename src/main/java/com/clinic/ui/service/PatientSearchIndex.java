@@ -0,0 +1,328 @@
+package com.clinic.ui.service;
+
+import com.clinic.ui.model.PatientDTO;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.regex.Pattern;
+
+/**
+ * Client-side search index over every known patient. Name, social id and phone
+ * are folded to plain lower-case ASCII ("Nguyễn" matches "nguyen") and indexed
+ * by word prefix and by trigram, so type-ahead lookups never leave the process.
+ */
+public class PatientSearchIndex {
+    private static final Pattern COMBINING_MARKS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARATORS = Pattern.compile("[^a-z0-9]+");
+    private static final int GRAM = 3;
+
+    private static final PatientSearchIndex INSTANCE = new PatientSearchIndex();
+
+    private State state = new State();
+    private State loading;
+    private CompletableFuture<Integer> inFlight;
+    private boolean ready;
+
+    PatientSearchIndex() {
+    }
+
+    public static PatientSearchIndex getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Streams the full patient list into the index once. Later calls return the
+     * same future; use {@link #reload()} to rebuild.
+     */
+    public synchronized CompletableFuture<Integer> load() {
+        if (inFlight != null) {
+            return inFlight;
+        }
+        return reload();
+    }
+
+    /**
+     * Rebuilds the index from the server. Searches keep using the previous
+     * contents until the new set has been fully read.
+     */
+    public synchronized CompletableFuture<Integer> reload() {
+        if (inFlight != null && !inFlight.isDone()) {
+            return inFlight;
+        }
+        State next = new State();
+        loading = next;
+        long started = System.nanoTime();
+        CompletableFuture<Integer> request = ApiService.streamPatients(chunk -> {
+            PatientCache.getInstance().putAll(chunk);
+            synchronized (this) {
+                for (PatientDTO patient : chunk) {
+                    next.put(patient);
+                }
+            }
+        });
+        inFlight = request;
+        request.whenComplete((count, error) -> {
+            synchronized (this) {
+                if (loading == next) {
+                    loading = null;
+                }
+                if (error != null) {
+                    if (!ApiService.isCancellation(error)) {
+                        System.err.println("ERROR building patient index: " + ApiService.unwrap(error).getMessage());
+                    }
+                    inFlight = null;
+                    return;
+                }
+                state = next;
+                ready = true;
+            }
+            System.out.println("DEBUG: Indexed " + next.byId.size() + " patients in "
+                    + (System.nanoTime() - started) / 1_000_000 + " ms");
+        });
+        return request;
+    }
+
+    /**
+     * Fills the index with patients restored from a local snapshot, so search
+     * works before the first load finishes. Ignored once the index is ready.
+     */
+    public synchronized void seed(List<PatientDTO> patients) {
+        if (ready || patients.isEmpty()) {
+            return;
+        }
+        State seeded = new State();
+        for (PatientDTO patient : patients) {
+            seeded.put(patient);
+        }
+        state = seeded;
+        ready = true;
+    }
+
+    public synchronized boolean isReady() {
+        return ready;
+    }
+
+    public synchronized int size() {
+        return state.byId.size();
+    }
+
+    public synchronized List<PatientDTO> getPatients() {
+        List<PatientDTO> patients = new ArrayList<>(state.byId.size());
+        for (Entry entry : state.byId.values()) {
+            patients.add(entry.patient);
+        }
+        return patients;
+    }
+
+    /**
+     * Adds or replaces a single patient, e.g. right after it was created.
+     */
+    public synchronized void add(PatientDTO patient) {
+        state.put(patient);
+        if (loading != null) {
+            loading.put(patient);
+        }
+    }
+
+    public synchronized void remove(Integer id) {
+        state.remove(id);
+        if (loading != null) {
+            loading.remove(id);
+        }
+    }
+
+    /**
+     * Ids of patients matching every word of {@code query}, either as a word
+     * prefix or, for words of three characters or more, anywhere in a field.
+     * Returns an empty set for a blank query.
+     */
+    public synchronized Set<Integer> searchIds(String query) {
+        String[] words = tokenize(fold(query));
+        if (words.length == 0) {
+            return new LinkedHashSet<>();
+        }
+        // Look up the most selective word and check the remaining ones against
+        // each candidate instead of intersecting large sets.
+        int best = 0;
+        int bestEstimate = Integer.MAX_VALUE;
+        for (int i = 0; i < words.length; i++) {
+            int estimate = state.estimate(words[i]);
+            if (estimate < bestEstimate
+                    || (estimate == bestEstimate && words[i].length() > words[best].length())) {
+                best = i;
+                bestEstimate = estimate;
+            }
+        }
+        if (bestEstimate == 0) {
+            return new LinkedHashSet<>();
+        }
+        Set<Integer> result = state.match(words[best]);
+        if (words.length > 1) {
+            result.removeIf(id -> !matchesAll(state.byId.get(id).words, words));
+        }
+        return result;
+    }
+
+    /**
+     * Patients matching {@code query}, see {@link #searchIds(String)}. The cost
+     * grows with the number of matches, not with the number of patients.
+     */
+    public List<PatientDTO> search(String query) {
+        return search(query, Integer.MAX_VALUE);
+    }
+
+    public synchronized List<PatientDTO> search(String query, int limit) {
+        List<PatientDTO> patients = new ArrayList<>();
+        for (Integer id : searchIds(query)) {
+            if (patients.size() >= limit) {
+                break;
+            }
+            patients.add(state.byId.get(id).patient);
+        }
+        return patients;
+    }
+
+    /**
+     * Lower-cases and strips Vietnamese diacritics, including the đ/Đ letter
+     * which has no decomposed form.
+     */
+    public static String fold(String text) {
+        if (text == null || text.isEmpty()) {
+            return "";
+        }
+        String lower = text.toLowerCase(Locale.ROOT).replace('đ', 'd');
+        return COMBINING_MARKS.matcher(Normalizer.normalize(lower, Normalizer.Form.NFD)).replaceAll("");
+    }
+
+    private static boolean matchesAll(String[] words, String[] queryWords) {
+        for (String queryWord : queryWords) {
+            if (!matches(words, queryWord)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean matches(String[] words, String queryWord) {
+        for (String word : words) {
+            if (queryWord.length() < GRAM ? word.startsWith(queryWord) : word.contains(queryWord)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String[] tokenize(String folded) {
+        String trimmed = SEPARATORS.matcher(folded).replaceAll(" ").trim();
+        return trimmed.isEmpty() ? new String[0] : trimmed.split(" ");
+    }
+
+    private static final class Entry {
+        final PatientDTO patient;
+        final String[] words;
+
+        Entry(PatientDTO patient) {
+            this.patient = patient;
+            this.words = tokenize(fold(patient.getFullName()) + " "
+                    + fold(patient.getSocialId()) + " " + fold(patient.getPhone()));
+        }
+    }
+
+    private static final class State {
+        final Map<Integer, Entry> byId = new LinkedHashMap<>();
+        final TreeMap<String, Set<Integer>> byWord = new TreeMap<>();
+        final Map<String, Set<Integer>> byGram = new HashMap<>();
+
+        void put(PatientDTO patient) {
+            if (patient == null || patient.getId() == null) {
+                return;
+            }
+            remove(patient.getId());
+            Entry entry = new Entry(patient);
+            byId.put(patient.getId(), entry);
+            for (String word : entry.words) {
+                byWord.computeIfAbsent(word, key -> new HashSet<>()).add(patient.getId());
+                for (int i = 0; i + GRAM <= word.length(); i++) {
+                    byGram.computeIfAbsent(word.substring(i, i + GRAM), key -> new HashSet<>()).add(patient.getId());
+                }
+            }
+        }
+
+        void remove(Integer id) {
+            Entry entry = id == null ? null : byId.remove(id);
+            if (entry == null) {
+                return;
+            }
+            for (String word : entry.words) {
+                detach(byWord, word, id);
+                for (int i = 0; i + GRAM <= word.length(); i++) {
+                    detach(byGram, word.substring(i, i + GRAM), id);
+                }
+            }
+        }
+
+        /**
+         * Upper bound on substring matches from the rarest trigram, or
+         * {@code Integer.MAX_VALUE} for words too short to have one.
+         */
+        int estimate(String word) {
+            if (word.length() < GRAM) {
+                return Integer.MAX_VALUE;
+            }
+            int smallest = Integer.MAX_VALUE;
+            for (int i = 0; i + GRAM <= word.length(); i++) {
+                Set<Integer> posting = byGram.get(word.substring(i, i + GRAM));
+                if (posting == null) {
+                    return 0;
+                }
+                smallest = Math.min(smallest, posting.size());
+            }
+            return smallest;
+        }
+
+        Set<Integer> match(String word) {
+            Set<Integer> ids = new LinkedHashSet<>();
+            for (Set<Integer> posting : byWord.subMap(word, true, word + Character.MAX_VALUE, true).values()) {
+                ids.addAll(posting);
+            }
+            if (word.length() < GRAM) {
+                return ids;
+            }
+
+            Set<Integer> candidates = null;
+            for (int i = 0; i + GRAM <= word.length(); i++) {
+                Set<Integer> posting = byGram.get(word.substring(i, i + GRAM));
+                if (posting == null) {
+                    return ids;
+                }
+                if (candidates == null || posting.size() < candidates.size()) {
+                    candidates = posting;
+                }
+            }
+            for (Integer id : candidates) {
+                if (!ids.contains(id) && matches(byId.get(id).words, word)) {
+                    ids.add(id);
+                }
+            }
+            return ids;
+        }
+
+        private static void detach(Map<String, Set<Integer>> index, String key, Integer id) {
+            Collection<Integer> posting = index.get(key);
+            if (posting != null && posting.remove(id) && posting.isEmpty()) {
+                index.remove(key);
+            }
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.clinic.ui.service;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.OpenOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Set;
+
+/**
+ * Local files holding patient data are created readable by the current user
+ * only. On file systems without POSIX
+ * permissions the defaults apply.
+ */
+final class PrivateFiles {
+    private static final Set<PosixFilePermission> FILE = PosixFilePermissions.fromString("rw-------");
+    private static final Set<PosixFilePermission> DIRECTORY = PosixFilePermissions.fromString("rwx------");
+
+    private PrivateFiles() {}
+
+    /**
+     * Creates the parent directory of {@code file} if needed, owner-only.
+     */
+    static void createParent(Path file) throws IOException {
+        Path dir = file.toAbsolutePath().getParent();
+        if (Files.isDirectory(dir)) {
+            return;
+        }
+        if (isPosix(dir.getParent())) {
+            Files.createDirectories(dir, PosixFilePermissions.asFileAttribute(DIRECTORY));
+        } else {
+            Files.createDirectories(dir);
+        }
+    }
+
+    /**
+     * Opens a channel like {@link FileChannel#open(Path, OpenOption...)}; a new
+     * file is created owner-only and an existing one is restricted to it.
+     */
+    static FileChannel open(Path file, OpenOption... options) throws IOException {
+        Path dir = file.toAbsolutePath().getParent();
+        if (!isPosix(dir)) {
+            return FileChannel.open(file, options);
+        }
+        FileChannel channel = FileChannel.open(file, Set.of(options), PosixFilePermissions.asFileAttribute(FILE));
+        Files.setPosixFilePermissions(file, FILE);
+        return channel;
+    }
+
+    private static boolean isPosix(Path dir) throws IOException {
+        while (dir != null && !Files.exists(dir)) {
+            dir = dir.getParent();
+        }
+        return dir != null && Files.getFileStore(dir).supportsFileAttributeView("posix");
+    }
+}
@@ -0,0 +1,189 @@
+package com.clinic.ui.service;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Background polling for views without a push channel. Each registered job
+ * refreshes on its own interval, backs off (up to a maximum) while refreshes
+ * report no change, stops while its view is hidden or a push channel is live,
+ * and randomizes its start and interval so many clients don't poll in lockstep.
+ */
+public class RefreshScheduler {
+    private static final RefreshScheduler INSTANCE = new RefreshScheduler();
+    private static final double BACKOFF_FACTOR = 1.5;
+    private static final double JITTER = 0.1;
+
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "refresh-scheduler");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final List<Job> jobs = new CopyOnWriteArrayList<>();
+
+    public static RefreshScheduler getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Registers a job. {@code refresh} must return a future that completes with
+     * {@code true} when the refresh found changes.
+     */
+    public Job register(String name, Duration interval, Duration maxInterval,
+                        Supplier<CompletableFuture<Boolean>> refresh) {
+        Job job = new Job(name, interval.toMillis(), Math.max(interval.toMillis(), maxInterval.toMillis()), refresh);
+        jobs.add(job);
+        job.schedule(ThreadLocalRandom.current().nextLong(Math.max(1, interval.toMillis())));
+        return job;
+    }
+
+    public List<Job> getJobs() {
+        return List.copyOf(jobs);
+    }
+
+    public final class Job {
+        private final String name;
+        private final long baseIntervalMs;
+        private final long maxIntervalMs;
+        private final Supplier<CompletableFuture<Boolean>> refresh;
+
+        private long intervalMs;
+        private boolean visible = true;
+        private boolean suspended;
+        private boolean running;
+        private boolean cancelled;
+        private long lastRunAt;
+        private ScheduledFuture<?> next;
+
+        private long runs;
+        private long changes;
+        private long failures;
+        private long totalLatencyMs;
+        private long lastLatencyMs;
+
+        private Job(String name, long baseIntervalMs, long maxIntervalMs, Supplier<CompletableFuture<Boolean>> refresh) {
+            this.name = name;
+            this.baseIntervalMs = baseIntervalMs;
+            this.maxIntervalMs = maxIntervalMs;
+            this.refresh = refresh;
+            this.intervalMs = baseIntervalMs;
+        }
+
+        /**
+         * Hidden jobs don't poll; on becoming visible a job that is overdue
+         * refreshes right away.
+         */
+        public synchronized void setVisible(boolean visible) {
+            this.visible = visible;
+            reschedule();
+        }
+
+        /**
+         * Suspends polling while another update source (e.g. push) is live.
+         */
+        public synchronized void setSuspended(boolean suspended) {
+            this.suspended = suspended;
+            reschedule();
+        }
+
+        public synchronized void cancel() {
+            cancelled = true;
+            if (next != null) {
+                next.cancel(false);
+            }
+            jobs.remove(this);
+        }
+
+        public synchronized long getRuns() { return runs; }
+        public synchronized long getChanges() { return changes; }
+        public synchronized long getLastLatencyMs() { return lastLatencyMs; }
+        public synchronized long getCurrentIntervalMs() { return intervalMs; }
+
+        public synchronized long getAverageLatencyMs() {
+            return runs == 0 ? 0 : totalLatencyMs / runs;
+        }
+
+        public synchronized double getChangeRate() {
+            return runs == 0 ? 0 : (double) changes / runs;
+        }
+
+        @Override
+        public synchronized String toString() {
+            return String.format("%s{runs=%d, changeRate=%.2f, failures=%d, lastLatency=%dms, avgLatency=%dms, interval=%dms%s}",
+                    name, runs, getChangeRate(), failures, lastLatencyMs, getAverageLatencyMs(), intervalMs,
+                    isActive() ? "" : ", paused");
+        }
+
+        private boolean isActive() {
+            return visible && !suspended && !cancelled;
+        }
+
+        private void reschedule() {
+            if (next != null) {
+                next.cancel(false);
+                next = null;
+            }
+            if (!isActive() || running) {
+                return;
+            }
+            long sinceLastRun = System.currentTimeMillis() - lastRunAt;
+            schedule(Math.max(0, intervalMs - sinceLastRun) + ThreadLocalRandom.current().nextLong(1_000));
+        }
+
+        private synchronized void schedule(long delayMs) {
+            if (!isActive()) {
+                return;
+            }
+            next = executor.schedule(this::run, delayMs, TimeUnit.MILLISECONDS);
+        }
+
+        private void run() {
+            long start;
+            synchronized (this) {
+                if (!isActive() || running) {
+                    return;
+                }
+                running = true;
+                start = System.nanoTime();
+            }
+
+            CompletableFuture<Boolean> result;
+            try {
+                result = refresh.get();
+            } catch (RuntimeException e) {
+                result = CompletableFuture.failedFuture(e);
+            }
+            result.whenComplete((changed, error) -> completed(start, changed, error));
+        }
+
+        private synchronized void completed(long start, Boolean changed, Throwable error) {
+            running = false;
+            lastRunAt = System.currentTimeMillis();
+            lastLatencyMs = (System.nanoTime() - start) / 1_000_000;
+            totalLatencyMs += lastLatencyMs;
+            runs++;
+
+            if (error != null) {
+                failures++;
+                intervalMs = Math.min(intervalMs * 2, maxIntervalMs);
+            } else if (Boolean.TRUE.equals(changed)) {
+                changes++;
+                intervalMs = baseIntervalMs;
+            } else {
+                intervalMs = Math.min((long) (intervalMs * BACKOFF_FACTOR), maxIntervalMs);
+            }
+            System.out.println("DEBUG: Auto-refresh " + this);
+
+            double jitter = 1 + (ThreadLocalRandom.current().nextDouble() * 2 - 1) * JITTER;
+            schedule((long) (intervalMs * jitter));
+        }
+    }
+}
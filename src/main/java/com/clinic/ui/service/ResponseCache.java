@@ -0,0 +1,144 @@
+package com.clinic.ui.service;
+
+import java.net.http.HttpHeaders;
+import java.net.http.HttpRequest;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * HTTP validator cache for GET responses. Entries remember the ETag and
+ * Last-Modified of a URL together with the raw body and/or the parsed result,
+ * so a 304 answer can be served without re-downloading or re-parsing. Memory is
+ * bounded by an approximate byte budget with least-recently-used eviction.
+ */
+public class ResponseCache {
+
+    public static final class Entry {
+        private final String etag;
+        private final String lastModified;
+        private final String body;
+        private final Object parsed;
+        private final long weight;
+
+        private Entry(String etag, String lastModified, String body, Object parsed, long weight) {
+            this.etag = etag;
+            this.lastModified = lastModified;
+            this.body = body;
+            this.parsed = parsed;
+            this.weight = weight;
+        }
+
+        public String getBody() {
+            return body;
+        }
+
+        @SuppressWarnings("unchecked")
+        public <T> T getParsed() {
+            return (T) parsed;
+        }
+    }
+
+    private final long budgetBytes;
+    private final Map<String, Entry> entries = new LinkedHashMap<>(64, 0.75f, true);
+    private long usedBytes;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    public ResponseCache(long budgetBytes) {
+        this.budgetBytes = budgetBytes;
+    }
+
+    public synchronized Entry get(String url) {
+        return entries.get(url);
+    }
+
+    public HttpRequest.Builder addValidators(HttpRequest.Builder builder, Entry entry) {
+        if (entry != null) {
+            if (entry.etag != null) {
+                builder.header("If-None-Match", entry.etag);
+            }
+            if (entry.lastModified != null) {
+                builder.header("If-Modified-Since", entry.lastModified);
+            }
+        }
+        return builder;
+    }
+
+    public void recordHit() {
+        hits.incrementAndGet();
+    }
+
+    public void recordMiss() {
+        misses.incrementAndGet();
+    }
+
+    public void storeBody(String url, HttpHeaders headers, String body) {
+        store(url, headers, body, null, (long) body.length() * 2);
+    }
+
+    /**
+     * Stores a parsed result. {@code sourceBytes} is the size of the JSON it came
+     * from and serves as an estimate of the object graph's footprint.
+     */
+    public void storeParsed(String url, HttpHeaders headers, Object parsed, long sourceBytes) {
+        store(url, headers, null, parsed, sourceBytes);
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    public synchronized long getUsedBytes() {
+        return usedBytes;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public double getHitRate() {
+        long total = hits.get() + misses.get();
+        return total == 0 ? 0 : (double) hits.get() / total;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("ResponseCache{entries=%d, used=%d/%d bytes, hits=%d, misses=%d, evictions=%d}",
+                size(), getUsedBytes(), budgetBytes, getHits(), getMisses(), getEvictions());
+    }
+
+    private synchronized void store(String url, HttpHeaders headers, String body, Object parsed, long weight) {
+        Optional<String> etag = headers.firstValue("ETag");
+        Optional<String> lastModified = headers.firstValue("Last-Modified");
+        Entry previous = entries.remove(url);
+        if (previous != null) {
+            usedBytes -= previous.weight;
+        }
+        if ((etag.isEmpty() && lastModified.isEmpty()) || weight > budgetBytes) {
+            return;
+        }
+
+        entries.put(url, new Entry(etag.orElse(null), lastModified.orElse(null), body, parsed, weight));
+        usedBytes += weight;
+
+        Iterator<Entry> eldest = entries.values().iterator();
+        while (usedBytes > budgetBytes && eldest.hasNext()) {
+            usedBytes -= eldest.next().weight;
+            eldest.remove();
+            evictions.incrementAndGet();
+        }
+    }
+}
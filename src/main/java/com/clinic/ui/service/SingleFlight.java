@@ -0,0 +1,86 @@
+package com.clinic.ui.service;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Deduplicates concurrent identical requests: while a request for a key is in
+ * flight, further callers share its result instead of issuing their own. Each
+ * caller gets an independent future, so one caller cancelling does not affect
+ * the others; the shared request is only cancelled once every caller has.
+ */
+public class SingleFlight {
+    private final Map<String, Flight<?>> flights = new HashMap<>();
+    private final AtomicLong issued = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+
+    @SuppressWarnings("unchecked")
+    public synchronized <T> CompletableFuture<T> execute(String key, Supplier<CompletableFuture<T>> request) {
+        Flight<T> flight = (Flight<T>) flights.get(key);
+        if (flight == null) {
+            Flight<T> created = new Flight<>(key, request.get());
+            flights.put(key, created);
+            created.source.whenComplete((value, error) -> remove(key, created));
+            issued.incrementAndGet();
+            flight = created;
+        } else {
+            coalesced.incrementAndGet();
+        }
+        return flight.join();
+    }
+
+    public long getIssued() {
+        return issued.get();
+    }
+
+    public long getCoalesced() {
+        return coalesced.get();
+    }
+
+    @Override
+    public String toString() {
+        return "SingleFlight{issued=" + getIssued() + ", coalesced=" + getCoalesced() + "}";
+    }
+
+    private synchronized void remove(String key, Flight<?> flight) {
+        flights.remove(key, flight);
+    }
+
+    private final class Flight<T> {
+        private final String key;
+        private final CompletableFuture<T> source;
+        private int waiters;
+
+        private Flight(String key, CompletableFuture<T> source) {
+            this.key = key;
+            this.source = source;
+        }
+
+        private CompletableFuture<T> join() {
+            waiters++;
+            CompletableFuture<T> waiter = source.copy();
+            waiter.whenComplete((value, error) -> {
+                if (waiter.isCancelled()) {
+                    release();
+                }
+            });
+            return waiter;
+        }
+
+        private void release() {
+            synchronized (SingleFlight.this) {
+                waiters--;
+                if (waiters > 0 || source.isDone()) {
+                    return;
+                }
+                // Unmapped before cancelling, so a new caller starts a fresh
+                // request instead of joining one that is being cancelled.
+                flights.remove(key, this);
+            }
+            source.cancel(true);
+        }
+    }
+}
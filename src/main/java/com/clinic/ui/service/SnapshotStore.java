@@ -0,0 +1,313 @@
+package com.clinic.ui.service;
+
+import com.clinic.ui.model.AppointmentDTO;
+import com.clinic.ui.model.DoctorDTO;
+import com.clinic.ui.model.PatientDTO;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Persists the last-known doctors, today's appointments and, when enabled,
+ * patients to a local file so the next launch can show them before the backend
+ * has answered. The file is readable by the current user only.
+ *
+ * The file is a small binary container: a magic number, a schema version, the
+ * save time, then named length-prefixed sections. It is read into a heap buffer
+ * on load and each section is only decoded when asked for. The file is not
+ * memory-mapped: a live mapping keeps Windows from replacing it on the next
+ * save. Files with another schema version or older than the configured maximum
+ * age are ignored.
+ */
+public class SnapshotStore {
+    private static final int MAGIC = 0x434C4E53; // "CLNS"
+    static final int SCHEMA_VERSION = 1;
+
+    private static final String DOCTORS = "doctors";
+    private static final String TODAY_APPOINTMENTS = "appointments.today";
+    private static final String PATIENTS = "patients";
+
+    // Null fields are left out to keep the file compact; reading restores them as null.
+    private static final ObjectMapper SECTION_MAPPER = JsonCodec.mapper().copy()
+            .setDefaultPropertyInclusion(JsonInclude.Value.construct(JsonInclude.Include.NON_NULL, JsonInclude.Include.NON_NULL));
+
+    private static final SnapshotStore INSTANCE = new SnapshotStore(ApiService.getConfig());
+
+    private final Path file;
+    private final Duration maxAge;
+    private final Duration saveInterval;
+    private final boolean includePatients;
+    private ScheduledExecutorService saver;
+
+    private volatile List<AppointmentDTO> todayAppointments;
+    private volatile LocalDate todayAppointmentsDate;
+
+    SnapshotStore(ApiConfig config) {
+        String location = config.getSnapshotFile();
+        this.file = location.isBlank() || location.equalsIgnoreCase("none") ? null : Path.of(location);
+        this.maxAge = config.getSnapshotMaxAge();
+        this.saveInterval = config.getSnapshotSaveInterval();
+        this.includePatients = config.isSnapshotPatientsEnabled();
+    }
+
+    public static SnapshotStore getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * A snapshot read back from disk. Sections are decoded lazily and return an
+     * empty list when missing or unreadable.
+     */
+    public static final class Snapshot {
+        private final Instant savedAt;
+        private final Map<String, ByteBuffer> sections;
+
+        private Snapshot(Instant savedAt, Map<String, ByteBuffer> sections) {
+            this.savedAt = savedAt;
+            this.sections = sections;
+        }
+
+        public Instant getSavedAt() {
+            return savedAt;
+        }
+
+        public List<DoctorDTO> getDoctors() {
+            return section(DOCTORS, DoctorDTO.class);
+        }
+
+        /**
+         * Today's appointments, or an empty list when the snapshot was taken on
+         * another day.
+         */
+        public List<AppointmentDTO> getTodayAppointments() {
+            LocalDate savedOn = LocalDate.ofInstant(savedAt, ZoneId.systemDefault());
+            return savedOn.equals(LocalDate.now()) ? section(TODAY_APPOINTMENTS, AppointmentDTO.class) : List.of();
+        }
+
+        public List<PatientDTO> getPatients() {
+            return section(PATIENTS, PatientDTO.class);
+        }
+
+        private <T> List<T> section(String name, Class<T> type) {
+            ByteBuffer payload = sections.get(name);
+            if (payload == null) {
+                return List.of();
+            }
+            try (InputStream in = new ByteBufferInputStream(payload.duplicate())) {
+                return JsonCodec.readerForListOf(type).readValue(in);
+            } catch (IOException | RuntimeException e) {
+                System.err.println("ERROR reading snapshot section " + name + ": " + e.getMessage());
+                return List.of();
+            }
+        }
+    }
+
+    /**
+     * Reads the snapshot file, or returns {@code null} when there is none, it is
+     * too old, or it was written with a different schema version.
+     */
+    public Snapshot load() {
+        if (file == null) {
+            return null;
+        }
+        long started = System.nanoTime();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                System.err.println("ERROR: " + file + " is too large for a snapshot");
+                return null;
+            }
+            ByteBuffer buffer = ByteBuffer.allocate((int) size);
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer) < 0) {
+                    break;
+                }
+            }
+            buffer.flip();
+            if (buffer.remaining() < 16 || buffer.getInt() != MAGIC) {
+                System.err.println("ERROR: " + file + " is not a snapshot file");
+                return null;
+            }
+            int version = buffer.getInt();
+            if (version != SCHEMA_VERSION) {
+                System.out.println("DEBUG: Ignoring snapshot with schema version " + version);
+                return null;
+            }
+            Instant savedAt = Instant.ofEpochMilli(buffer.getLong());
+            if (Duration.between(savedAt, Instant.now()).compareTo(maxAge) > 0) {
+                System.out.println("DEBUG: Ignoring snapshot saved at " + savedAt + " (older than " + maxAge + ")");
+                return null;
+            }
+
+            int count = buffer.getInt();
+            Map<String, ByteBuffer> sections = new LinkedHashMap<>();
+            for (int i = 0; i < count; i++) {
+                byte[] name = new byte[buffer.getShort()];
+                buffer.get(name);
+                int length = buffer.getInt();
+                sections.put(new String(name, StandardCharsets.UTF_8), buffer.slice(buffer.position(), length));
+                buffer.position(buffer.position() + length);
+            }
+            if (!includePatients) {
+                // Left by a run that still had the option on; the next save drops it.
+                sections.remove(PATIENTS);
+            }
+            System.out.println("DEBUG: Read snapshot from " + savedAt + " with " + sections.keySet() + " in "
+                    + (System.nanoTime() - started) / 1_000 + " us");
+            return new Snapshot(savedAt, sections);
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException | RuntimeException e) {
+            System.err.println("ERROR loading snapshot " + file + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Records the latest version of today's list; it is written with the next save.
+     */
+    public void setTodayAppointments(List<AppointmentDTO> appointments) {
+        todayAppointments = List.copyOf(appointments);
+        todayAppointmentsDate = LocalDate.now();
+    }
+
+    /**
+     * Writes the current data to a temporary file and moves it over the previous
+     * snapshot, so a crash mid-write never leaves a broken file behind.
+     */
+    public synchronized void save() {
+        if (file == null) {
+            return;
+        }
+        long started = System.nanoTime();
+        Map<String, byte[]> sections = new LinkedHashMap<>();
+        List<DoctorDTO> doctors = DoctorRegistry.getInstance().getCachedDoctors();
+        if (!doctors.isEmpty()) {
+            encode(sections, DOCTORS, doctors);
+        }
+        List<AppointmentDTO> today = todayAppointments;
+        if (today != null && LocalDate.now().equals(todayAppointmentsDate)) {
+            encode(sections, TODAY_APPOINTMENTS, today);
+        }
+        PatientSearchIndex index = PatientSearchIndex.getInstance();
+        if (includePatients && index.isReady()) {
+            encode(sections, PATIENTS, index.getPatients());
+        }
+        if (sections.isEmpty()) {
+            return;
+        }
+
+        int size = 20;
+        List<byte[]> names = new ArrayList<>();
+        for (Map.Entry<String, byte[]> section : sections.entrySet()) {
+            byte[] name = section.getKey().getBytes(StandardCharsets.UTF_8);
+            names.add(name);
+            size += 2 + name.length + 4 + section.getValue().length;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        buffer.putInt(MAGIC).putInt(SCHEMA_VERSION).putLong(System.currentTimeMillis()).putInt(sections.size());
+        int i = 0;
+        for (byte[] payload : sections.values()) {
+            byte[] name = names.get(i++);
+            buffer.putShort((short) name.length).put(name).putInt(payload.length).put(payload);
+        }
+        buffer.flip();
+
+        try {
+            PrivateFiles.createParent(file);
+            Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+            try (FileChannel channel = PrivateFiles.open(temp, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                channel.force(false);
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            System.out.println("DEBUG: Saved snapshot " + sections.keySet() + " (" + size + " bytes) in "
+                    + (System.nanoTime() - started) / 1_000_000 + " ms");
+        } catch (IOException | RuntimeException e) {
+            System.err.println("ERROR saving snapshot " + file + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Saves periodically in the background at the configured interval.
+     */
+    public synchronized void startPeriodicSave() {
+        if (file == null || saver != null || saveInterval.isZero() || saveInterval.isNegative()) {
+            return;
+        }
+        saver = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "snapshot-saver");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = saveInterval.toMillis();
+        saver.scheduleWithFixedDelay(this::save, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    public synchronized void stopPeriodicSave() {
+        if (saver != null) {
+            saver.shutdownNow();
+            saver = null;
+        }
+    }
+
+    private static void encode(Map<String, byte[]> sections, String name, List<?> values) {
+        try {
+            sections.put(name, SECTION_MAPPER.writeValueAsBytes(values));
+        } catch (IOException e) {
+            System.err.println("ERROR writing snapshot section " + name + ": " + e.getMessage());
+        }
+    }
+
+    private static final class ByteBufferInputStream extends InputStream {
+        private final ByteBuffer buffer;
+
+        ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] target, int offset, int length) {
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            int count = Math.min(length, buffer.remaining());
+            buffer.get(target, offset, count);
+            return count;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+    }
+}